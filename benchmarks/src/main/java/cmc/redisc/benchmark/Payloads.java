@@ -0,0 +1,93 @@
+package cmc.redisc.benchmark;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的代表性数据
+ */
+public final class Payloads {
+
+    private Payloads() {
+    }
+
+    @Data
+    public static class Unit implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Long id;
+        private String code;
+        private Integer floor;
+        private BigDecimal area;
+        private Boolean occupied;
+    }
+
+    @Data
+    public static class House implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Long id;
+        private String name;
+        private String address;
+        private Date createTime;
+        private Map<String, String> tags;
+        private List<Unit> units;
+    }
+
+    /**
+     * 单个小对象
+     */
+    public static Unit unit(long id) {
+        Unit unit = new Unit();
+        unit.setId(id);
+        unit.setCode("U-" + id);
+        unit.setFloor((int) (id % 30));
+        unit.setArea(BigDecimal.valueOf(60 + id % 90, 0).add(BigDecimal.valueOf(25, 2)));
+        unit.setOccupied(id % 3 == 0);
+        return unit;
+    }
+
+    /**
+     * 带嵌套集合的对象
+     *
+     * @param units 下属单元数
+     */
+    public static House house(long id, int units) {
+        House house = new House();
+        house.setId(id);
+        house.setName("house-" + id);
+        house.setAddress("No." + id + " Example Road");
+        house.setCreateTime(new Date(1700000000000L + id));
+        Map<String, String> tags = new HashMap<>();
+        tags.put("region", "east");
+        tags.put("type", "residential");
+        house.setTags(tags);
+        List<Unit> list = new ArrayList<>(units);
+        for (int i = 0; i < units; i++) {
+            list.add(unit(id * 1000 + i));
+        }
+        house.setUnits(list);
+        return house;
+    }
+
+    /**
+     * 按名称选择数据：small / medium / large
+     */
+    public static Object of(String size) {
+        switch (size) {
+            case "small":
+                return unit(1);
+            case "medium":
+                return house(1, 10);
+            case "large":
+                return house(1, 500);
+            default:
+                throw new IllegalArgumentException("未知数据规模 " + size);
+        }
+    }
+}
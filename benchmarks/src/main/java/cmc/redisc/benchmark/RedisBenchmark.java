@@ -0,0 +1,135 @@
+package cmc.redisc.benchmark;
+
+import cmc.redisc.configure.RedisQueue;
+import cmc.redisc.configure.TaskSynData;
+import cmc.redisc.service.RedisService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 需要 Redis 的往返：队列 push / pop、事件发布到监听函数收到、pur 请求应答。
+ * <p>
+ * 默认连接 localhost:6379，可用 -Dredis.host / -Dredis.port 指定；
+ * 给出 -Dredis.server=/path/to/redis-server 时在该端口启动一个临时实例，结束后关闭
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisBenchmark {
+
+    private static final String QUEUE = "redisc:bench:queue";
+    private static final String EVENT = "redisc-bench-event";
+    private static final String REQUEST = "redisc-bench-request";
+
+    @Param({"small", "medium"})
+    public String size;
+
+    private Process server;
+    private ConfigurableApplicationContext context;
+    private RedisService redisService;
+    private RedisQueue redisQueue;
+    private Object value;
+
+    /**
+     * 事件监听函数收到的数据
+     */
+    private final BlockingQueue<TaskSynData<?>> received = new LinkedBlockingQueue<>();
+
+    @Configuration
+    @EnableAutoConfiguration
+    static class BenchmarkApplication {
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String host = System.getProperty("redis.host", "localhost");
+        int port = Integer.getInteger("redis.port", 6379);
+        String executable = System.getProperty("redis.server");
+        if (executable != null) {
+            server = new ProcessBuilder(executable, "--port", String.valueOf(port), "--save", "", "--appendonly", "no")
+                    .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "redisc-bench-redis.log"))
+                    .redirectErrorStream(true)
+                    .start();
+            awaitPort(host, port);
+        }
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.redis.host=" + host, "spring.redis.port=" + port)
+                .run();
+        redisService = context.getBean(RedisService.class);
+        redisQueue = context.getBean(RedisQueue.class);
+        redisService.deleteObject(QUEUE);
+        redisService.on(EVENT, data -> {
+            received.add(data);
+            return null;
+        });
+        redisService.on(REQUEST, data -> data.get());
+        value = Payloads.of(size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            redisService.cancel(EVENT);
+            redisService.cancel(REQUEST);
+            redisService.deleteObject(QUEUE);
+            context.close();
+        }
+        if (server != null) {
+            server.destroy();
+        }
+    }
+
+    /**
+     * 一次 push 加一次 pop，队列长度保持不变
+     */
+    @Benchmark
+    public Object queuePushPop() {
+        redisQueue.push(QUEUE, value);
+        return redisQueue.pop(QUEUE);
+    }
+
+    /**
+     * 发布事件并等待本节点的监听函数收到
+     */
+    @Benchmark
+    public Object publishDelivery() throws InterruptedException {
+        redisService.pu(EVENT, value);
+        return received.poll(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * pur 请求应答往返
+     */
+    @Benchmark
+    public Optional<TaskSynData<?>> purRoundTrip() {
+        return redisService.pur(REQUEST, value);
+    }
+
+    private static void awaitPort(String host, int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (System.currentTimeMillis() < deadline) {
+            try (Socket ignored = new Socket(host, port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("redis-server 未在 " + host + ":" + port + " 启动");
+    }
+}
@@ -0,0 +1,50 @@
+package cmc.redisc.benchmark;
+
+import cmc.redisc.configure.FastJson2JsonRedisSerializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FastJson2JsonRedisSerializer} 序列化 / 反序列化吞吐，分配率使用 -prof gc 查看
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializerBenchmark {
+
+    @Param({"small", "medium", "large"})
+    public String size;
+
+    @Param({"false", "true"})
+    public boolean binary;
+
+    private FastJson2JsonRedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        serializer = new FastJson2JsonRedisSerializer<>(Object.class);
+        serializer.setBinary(binary);
+        if (binary) {
+            serializer.setTypes(Arrays.asList(Payloads.Unit.class.getName(), Payloads.House.class.getName()));
+        }
+        value = Payloads.of(size);
+        bytes = serializer.serialize(value);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(bytes);
+    }
+}
@@ -0,0 +1,77 @@
+package cmc.redisc.benchmark;
+
+import cmc.redisc.configure.TaskSynData;
+import cmc.redisc.service.RedisService;
+import com.alibaba.fastjson.JSON;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务数据的解码与转换：{@link TaskSynData#get(Class)}、{@link TaskSynData#toList(Class)}
+ * 以及 {@link RedisService#genParameter(TaskSynData, Object[])}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskSynDataBenchmark {
+
+    @Param({"1", "100"})
+    public int count;
+
+    /**
+     * 已解码、data 仍为 Map 的任务，与队列 / 事件收到的数据一致
+     */
+    private TaskSynData<?> single;
+    private TaskSynData<?> multiple;
+    private TaskSynData<?> list;
+    private Payloads.House house;
+    private Payloads.Unit unit;
+
+    @Setup
+    public void setup() {
+        house = Payloads.house(1, 10);
+        unit = Payloads.unit(1);
+        single = decode(house);
+        multiple = decode(house, unit);
+        List<Payloads.Unit> units = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            units.add(Payloads.unit(i));
+        }
+        list = decode(units);
+    }
+
+    private static TaskSynData<?> decode(Object... args) {
+        TaskSynData<Object> taskSynData = new TaskSynData<>();
+        taskSynData.setName("bench");
+        RedisService.genParameter(taskSynData, args);
+        return JSON.parseObject(JSON.toJSONString(taskSynData), TaskSynData.class);
+    }
+
+    @Benchmark
+    public Object getSingle() {
+        return single.get(Payloads.House.class);
+    }
+
+    @Benchmark
+    public Object getByType() {
+        return multiple.get(Payloads.Unit.class);
+    }
+
+    @Benchmark
+    public Object toList() {
+        return list.toList(Payloads.Unit.class);
+    }
+
+    @Benchmark
+    public Object genParameter() {
+        TaskSynData<Object> taskSynData = new TaskSynData<>();
+        RedisService.genParameter(taskSynData, new Object[]{house, unit});
+        return taskSynData;
+    }
+}
@@ -0,0 +1,30 @@
+package cmc.redisc.configure;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * getOrLoad 写入的缓存值，附带逻辑过期时间与加载耗时
+ * <p>
+ * redis 中的实际过期时间为逻辑过期时间加上 redisc.load.stale-ttl，逻辑过期后的这段时间内仍返回旧值并在后台刷新
+ */
+@Data
+public class CacheEnvelope implements Serializable {
+    private static final long serialVersionUID = 4718295301734902641L;
+
+    /**
+     * 缓存的值
+     */
+    private Object value;
+
+    /**
+     * 逻辑过期时间，毫秒时间戳
+     */
+    private long expireAt;
+
+    /**
+     * 上次加载耗时，毫秒，用于提前刷新
+     */
+    private long delta;
+}
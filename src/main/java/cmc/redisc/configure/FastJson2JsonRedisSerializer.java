@@ -4,31 +4,56 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.parser.Feature;
 import com.alibaba.fastjson.parser.ParserConfig;
 import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.alibaba.fastjson2.JSONB;
+import com.alibaba.fastjson2.JSONFactory;
 import com.alibaba.fastjson2.JSONReader;
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.alibaba.fastjson2.JSONWriter;
+import com.alibaba.fastjson2.SymbolTable;
+import com.alibaba.fastjson2.filter.Filter;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.SerializationException;
-import org.springframework.util.Assert;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Redis使用FastJson序列化
- * 
+ * <p>
+ * 直接读写 UTF-8 字节，不经过 String 中转。开启紧凑二进制格式后以 JSONB 写入，
+ * 已登记的类型以类型表序号代替完整类名，首字节为 {@link #JSONB_MAGIC}；
+ * 读取时按首字节区分，原有的 JSON 值仍可读取。JSONB 读取只还原类型表、允许列表中的类型与 JDK 基础类型，
+ * 其它类型读为 JSONObject。配置 {@link RedisValueCompressor} 后较大的值在编码后再压缩
+ *
  * @author ruoyi
  */
 public class FastJson2JsonRedisSerializer<T> implements RedisSerializer<T>
 {
-    @SuppressWarnings("unused")
-    private ObjectMapper objectMapper = new ObjectMapper();
-
     public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
-    private Class<T> clazz;
+    /**
+     * JSONB 值的首字节，合法的 JSON 文本不会以该字节开头
+     */
+    public static final byte JSONB_MAGIC = 0x01;
+
+    private final Class<T> clazz;
+
+    private boolean binary = false;
+
+    private SymbolTable symbolTable = JSONB.symbolTable();
+
+    private Collection<String> typeNames = Collections.emptyList();
+
+    private Collection<String> acceptNames = Collections.emptyList();
+
+    private Filter[] autoTypeFilters = {JSONReader.autoTypeFilter(true, new String[0])};
+
+    private RediscMetrics metrics = RediscMetrics.NOOP;
+
+    private RedisValueCompressor compressor;
 
     static
     {
@@ -48,7 +73,23 @@ public class FastJson2JsonRedisSerializer<T> implements RedisSerializer<T>
         {
             return new byte[0];
         }
-        return JSON.toJSONString(t, SerializerFeature.WriteClassName).getBytes(DEFAULT_CHARSET);
+        byte[] bytes = binary ? toJSONB(t) : JSON.toJSONBytes(t, SerializerFeature.WriteClassName);
+        if (compressor != null)
+        {
+            bytes = compressor.compress(bytes);
+        }
+        metrics.recordPayload("write", bytes.length);
+        return bytes;
+    }
+
+    private byte[] toJSONB(T t)
+    {
+        try (JSONWriter writer = JSONWriter.ofJSONB(new JSONWriter.Context(JSONWriter.Feature.WriteClassName), symbolTable))
+        {
+            writer.writeRaw(JSONB_MAGIC);
+            writer.writeAny(t);
+            return writer.getBytes();
+        }
     }
 
     @Override
@@ -58,18 +99,80 @@ public class FastJson2JsonRedisSerializer<T> implements RedisSerializer<T>
         {
             return null;
         }
-        String str = new String(bytes, DEFAULT_CHARSET);
-        return JSON.parseObject(str, clazz, Feature.SupportAutoType);
+        metrics.recordPayload("read", bytes.length);
+        if (RedisValueCompressor.isCompressed(bytes))
+        {
+            bytes = decompressor().decompress(bytes);
+        }
+        if (bytes[0] == JSONB_MAGIC)
+        {
+            JSONReader.Context context = new JSONReader.Context(JSONFactory.getDefaultObjectReaderProvider(), symbolTable, autoTypeFilters);
+            return JSONB.parseObject(bytes, 1, bytes.length - 1, clazz, context);
+        }
+        return JSON.parseObject(bytes, clazz, Feature.SupportAutoType);
+    }
+
+    /**
+     * 是否以 JSONB 紧凑二进制格式写入，不影响读取
+     */
+    public void setBinary(boolean binary)
+    {
+        this.binary = binary;
+    }
+
+    /**
+     * JSONB 类型表，各节点必须一致；类型表按类名排序编号，增删类型后已写入的 JSONB 值无法正确读取
+     *
+     * @param typeNames 类名
+     */
+    public void setTypes(Collection<String> typeNames)
+    {
+        this.symbolTable = JSONB.symbolTable(typeNames.toArray(new String[0]));
+        this.typeNames = typeNames;
+        refreshAutoTypeFilter();
+    }
+
+    /**
+     * JSONB 读取时允许还原的类名或包前缀，类型表中的类无需重复配置
+     *
+     * @param acceptNames 类名或包前缀
+     */
+    public void setAccept(Collection<String> acceptNames)
+    {
+        this.acceptNames = acceptNames;
+        refreshAutoTypeFilter();
     }
 
-    public void setObjectMapper(ObjectMapper objectMapper)
+    private void refreshAutoTypeFilter()
     {
-        Assert.notNull(objectMapper, "'objectMapper' must not be null");
-        this.objectMapper = objectMapper;
+        List<String> names = new ArrayList<>(typeNames);
+        names.addAll(acceptNames);
+        this.autoTypeFilters = new Filter[]{JSONReader.autoTypeFilter(true, names.toArray(new String[0]))};
+    }
+
+    /**
+     * 写入时压缩较大的值，为空时不压缩；读取压缩值不依赖该设置
+     */
+    public void setCompressor(RedisValueCompressor compressor)
+    {
+        this.compressor = compressor;
+    }
+
+    private RedisValueCompressor decompressor()
+    {
+        if (compressor == null)
+        {
+            // 其它节点写入的压缩值
+            compressor = new RedisValueCompressor(new RediscProperties.Compression(), metrics);
+        }
+        return compressor;
     }
 
-    protected JavaType getJavaType(Class<?> clazz)
+    /**
+     * 记录读写的数据大小
+     */
+    public void setMetrics(RediscMetrics metrics)
     {
-        return TypeFactory.defaultInstance().constructType(clazz);
+        this.metrics = metrics;
     }
 }
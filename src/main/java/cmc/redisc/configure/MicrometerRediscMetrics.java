@@ -0,0 +1,123 @@
+package cmc.redisc.configure;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 基于 Micrometer 的指标记录，按名称缓存计量器，记录时不再查找注册表
+ * <ul>
+ *     <li>redisc.operation：方法耗时，标签 operation</li>
+ *     <li>redisc.payload.size：序列化后的字节数，标签 direction</li>
+ *     <li>redisc.queue.depth：队列长度，标签 queue</li>
+ *     <li>redisc.event.published / redisc.event.consumed：事件数，标签 event</li>
+ *     <li>redisc.event.handler：监听函数耗时，标签 event、outcome</li>
+ *     <li>redisc.reply.timeout：pur 超时次数，标签 event</li>
+ *     <li>redisc.compression.ratio：写入时原始大小与压缩后大小之比，标签 codec</li>
+ *     <li>redisc.compression.time：压缩 / 解压耗时，标签 codec、direction</li>
+ *     <li>redisc.lock.wait：等待分布式锁的耗时，标签 outcome；锁名数量不可控，不作为标签</li>
+ * </ul>
+ */
+public class MicrometerRediscMetrics implements RediscMetrics {
+
+    private final MeterRegistry registry;
+    private final boolean histogram;
+
+    private final Map<String, Timer> operations = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> payloads = new ConcurrentHashMap<>();
+    private final Map<String, Counter> published = new ConcurrentHashMap<>();
+    private final Map<String, Counter> consumed = new ConcurrentHashMap<>();
+    private final Map<String, Timer> handlers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> failedHandlers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> timeouts = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> ratios = new ConcurrentHashMap<>();
+    private final Map<String, Timer> compressions = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lockWaits = new ConcurrentHashMap<>();
+
+    public MicrometerRediscMetrics(MeterRegistry registry, RediscProperties.Metrics config) {
+        this.registry = registry;
+        this.histogram = config.isHistogram();
+    }
+
+    @Override
+    public void recordOperation(String operation, long nanos) {
+        operations.computeIfAbsent(operation, k -> Timer.builder("redisc.operation")
+                .tag("operation", k)
+                .publishPercentileHistogram(histogram)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPayload(String direction, int bytes) {
+        payloads.computeIfAbsent(direction, k -> DistributionSummary.builder("redisc.payload.size")
+                .tag("direction", k)
+                .baseUnit("bytes")
+                .publishPercentileHistogram(histogram)
+                .register(registry)).record(bytes);
+    }
+
+    @Override
+    public void registerQueue(String queue, LongSupplier depth) {
+        Gauge.builder("redisc.queue.depth", depth, d -> d.getAsLong())
+                .tag("queue", queue)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    @Override
+    public void eventPublished(String name) {
+        published.computeIfAbsent(name, k -> Counter.builder("redisc.event.published").tag("event", k).register(registry))
+                .increment();
+    }
+
+    @Override
+    public void eventConsumed(String name) {
+        consumed.computeIfAbsent(name, k -> Counter.builder("redisc.event.consumed").tag("event", k).register(registry))
+                .increment();
+    }
+
+    @Override
+    public void recordHandler(String name, long nanos, boolean success) {
+        Map<String, Timer> timers = success ? handlers : failedHandlers;
+        timers.computeIfAbsent(name, k -> Timer.builder("redisc.event.handler")
+                .tag("event", k)
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram(histogram)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void replyTimeout(String name) {
+        timeouts.computeIfAbsent(name, k -> Counter.builder("redisc.reply.timeout").tag("event", k).register(registry))
+                .increment();
+    }
+
+    @Override
+    public void recordCompression(String codec, String direction, int rawBytes, int compressed, long nanos) {
+        compressions.computeIfAbsent(codec + ":" + direction, k -> Timer.builder("redisc.compression.time")
+                .tag("codec", codec)
+                .tag("direction", direction)
+                .publishPercentileHistogram(histogram)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+        if ("write".equals(direction) && compressed > 0) {
+            ratios.computeIfAbsent(codec, k -> DistributionSummary.builder("redisc.compression.ratio")
+                    .tag("codec", k)
+                    .register(registry)).record((double) rawBytes / compressed);
+        }
+    }
+
+    @Override
+    public void recordLockWait(long nanos, boolean acquired) {
+        lockWaits.computeIfAbsent(acquired ? "acquired" : "timeout", k -> Timer.builder("redisc.lock.wait")
+                .tag("outcome", k)
+                .publishPercentileHistogram(histogram)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,41 @@
+package cmc.redisc.configure;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 队列消费者参数
+ */
+@Data
+public class QueueConsumerOptions {
+
+    /**
+     * 处理线程数
+     */
+    private int concurrency;
+
+    /**
+     * 本地预取缓冲大小
+     */
+    private int prefetch;
+
+    /**
+     * 队列为空时单次阻塞等待时间
+     */
+    private Duration pollTimeout;
+
+    /**
+     * 停止时等待已取出任务处理完毕的最长时间
+     */
+    private Duration shutdownTimeout;
+
+    public static QueueConsumerOptions of(RediscProperties.QueueConsumer defaults) {
+        QueueConsumerOptions options = new QueueConsumerOptions();
+        options.setConcurrency(defaults.getConcurrency());
+        options.setPrefetch(defaults.getPrefetch());
+        options.setPollTimeout(defaults.getPollTimeout());
+        options.setShutdownTimeout(defaults.getShutdownTimeout());
+        return options;
+    }
+}
@@ -0,0 +1,238 @@
+package cmc.redisc.configure;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 防击穿的缓存加载
+ * <p>
+ * 同一节点内同一个键只有一个线程执行加载，其余线程等待其结果；节点之间以 SET NX 加载锁协调，
+ * 未取得锁的节点等待其它节点写入。值在逻辑过期前按 XFetch 概率提前在后台刷新，
+ * 逻辑过期后的 stale-ttl 内返回旧值并在后台刷新
+ */
+@Slf4j
+public class RedisCacheLoader implements DisposableBean {
+
+    private static final String LOCK_SUFFIX = ":load-lock";
+
+    /**
+     * 只释放自己持有的锁
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end\n" +
+            "return 0", Long.class);
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final RedisNearCache redisNearCache;
+    private final RediscProperties.Load config;
+
+    /**
+     * 进行中的同步加载
+     */
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 进行中的后台刷新
+     */
+    private final Map<String, Boolean> refreshing = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor refresher;
+
+    public RedisCacheLoader(RedisTemplate<Object, Object> redisTemplate, RedisNearCache redisNearCache, RediscProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.redisNearCache = redisNearCache;
+        this.config = properties.getLoad();
+        int threads = Math.max(1, config.getRefreshThreads());
+        AtomicInteger index = new AtomicInteger();
+        this.refresher = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getRefreshQueueCapacity())), r -> {
+            Thread thread = new Thread(r, "redisc-refresh-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 读取缓存，不存在时加载并写入
+     *
+     * @param key    缓存键值
+     * @param loader 加载函数，返回null时不缓存
+     * @param ttl    有效时间
+     * @param unit   时间颗粒度
+     * @return 缓存或加载的值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader, long ttl, TimeUnit unit) {
+        long ttlMillis = unit.toMillis(ttl);
+        CacheEnvelope envelope = read(key);
+        if (envelope != null) {
+            long now = System.currentTimeMillis();
+            if (now >= envelope.getExpireAt() || shouldRefreshEarly(envelope, now)) {
+                refreshAsync(key, loader, ttlMillis);
+            }
+            return (T) envelope.getValue();
+        }
+        return (T) loadOnce(key, loader, ttlMillis);
+    }
+
+    /**
+     * XFetch：越接近过期、加载越慢，越可能提前刷新
+     */
+    private boolean shouldRefreshEarly(CacheEnvelope envelope, long now) {
+        double random = ThreadLocalRandom.current().nextDouble();
+        return now - envelope.getDelta() * config.getBeta() * Math.log(random) >= envelope.getExpireAt();
+    }
+
+    /**
+     * 同一节点内同一个键只加载一次，其余线程等待
+     */
+    private Object loadOnce(String key, Supplier<?> loader, long ttlMillis) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, mine);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            Object value = loadCoordinated(key, loader, ttlMillis);
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, mine);
+        }
+    }
+
+    /**
+     * 取得加载锁的节点执行加载，其余节点等待写入，超过 lock-timeout 后自行加载
+     */
+    private Object loadCoordinated(String key, Supplier<?> loader, long ttlMillis) {
+        long deadline = System.currentTimeMillis() + config.getLockTimeout().toMillis();
+        while (true) {
+            String token = tryLock(key);
+            if (token != null) {
+                try {
+                    // 等待期间可能已被其它节点写入
+                    CacheEnvelope envelope = read(key);
+                    if (envelope != null) {
+                        return envelope.getValue();
+                    }
+                    return load(key, loader, ttlMillis);
+                } finally {
+                    unlock(key, token);
+                }
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                log.warn("等待缓存 {} 加载超时，本节点自行加载", key);
+                return load(key, loader, ttlMillis);
+            }
+            sleep(config.getWaitInterval().toMillis());
+            CacheEnvelope envelope = read(key);
+            if (envelope != null) {
+                return envelope.getValue();
+            }
+        }
+    }
+
+    /**
+     * 后台刷新，同一个键同时只有一个刷新任务，未取得加载锁时放弃
+     */
+    private void refreshAsync(String key, Supplier<?> loader, long ttlMillis) {
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refresher.execute(() -> {
+                try {
+                    String token = tryLock(key);
+                    if (token != null) {
+                        try {
+                            load(key, loader, ttlMillis);
+                        } finally {
+                            unlock(key, token);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    log.error("刷新缓存 {} 出现异常", key, e);
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 队列已满或正在关闭，下次读取时再触发
+            refreshing.remove(key);
+        }
+    }
+
+    private Object load(String key, Supplier<?> loader, long ttlMillis) {
+        long start = System.currentTimeMillis();
+        Object value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        CacheEnvelope envelope = new CacheEnvelope();
+        envelope.setValue(value);
+        envelope.setExpireAt(now + ttlMillis);
+        envelope.setDelta(now - start);
+        redisTemplate.opsForValue().set(key, envelope, ttlMillis + config.getStaleTtl().toMillis(), TimeUnit.MILLISECONDS);
+        redisNearCache.invalidate(key, null);
+        return value;
+    }
+
+    private CacheEnvelope read(String key) {
+        Object value = redisTemplate.opsForValue().get(key);
+        return value instanceof CacheEnvelope ? (CacheEnvelope) value : null;
+    }
+
+    private String tryLock(String key) {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(key + LOCK_SUFFIX, token,
+                config.getLockTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    private void unlock(String key, String token) {
+        redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key + LOCK_SUFFIX), token);
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待缓存加载被中断", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+}
@@ -1,13 +1,13 @@
 package cmc.redisc.configure;
 
 import cmc.redisc.service.RedisService;
-import com.fasterxml.jackson.annotation.JsonAutoDetect;
-import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import com.fasterxml.jackson.annotation.PropertyAccessor;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
@@ -15,11 +15,12 @@ import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.adapter.MessageListenerAdapter;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.ClassUtils;
 
 /**
  * redis配置
@@ -28,14 +29,30 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(RediscProperties.class)
 public class RedisConfig extends CachingConfigurerSupport {
+    private static final String MICROMETER_REGISTRY = "io.micrometer.core.instrument.MeterRegistry";
+
+    /**
+     * 指标记录，未开启或没有 micrometer 时不记录
+     */
     @Bean
-    public FastJson2JsonRedisSerializer<Object> getFastJsonSerializer(){
+    public RediscMetrics rediscMetrics(RediscProperties properties, ApplicationContext applicationContext) {
+        if (!properties.getMetrics().isEnabled()
+                || !ClassUtils.isPresent(MICROMETER_REGISTRY, RedisConfig.class.getClassLoader())) {
+            return RediscMetrics.NOOP;
+        }
+        return MicrometerSupport.create(applicationContext, properties.getMetrics());
+    }
+
+    @Bean
+    public FastJson2JsonRedisSerializer<Object> getFastJsonSerializer(RediscProperties properties, RediscMetrics rediscMetrics){
         FastJson2JsonRedisSerializer<Object> serializer = new FastJson2JsonRedisSerializer<>(Object.class);
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        mapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
-        serializer.setObjectMapper(mapper);
+        serializer.setBinary(properties.getSerializer().isBinary());
+        serializer.setTypes(properties.getSerializer().getTypes());
+        serializer.setAccept(properties.getSerializer().getAccept());
+        serializer.setMetrics(rediscMetrics);
+        serializer.setCompressor(new RedisValueCompressor(properties.getCompression(), rediscMetrics));
         return serializer;
     }
 
@@ -92,20 +109,71 @@ public class RedisConfig extends CachingConfigurerSupport {
      * Redis消息监听
      *
      * @param redisConnectionFactory redis连接工厂
-     * @param listenerAdapter        监听器
+     * @param redisNearCache         本地一级缓存
+     * @param properties             配置项
      * @return 结果
      */
     @Bean
-    public RedisMessageListenerContainer container(RedisConnectionFactory redisConnectionFactory, MessageListenerAdapter listenerAdapter) {
+    public RedisMessageListenerContainer container(RedisConnectionFactory redisConnectionFactory,
+                                                   RedisNearCache redisNearCache, RediscProperties properties) {
         RedisMessageListenerContainer container = new RedisMessageListenerContainer();
         container.setConnectionFactory(redisConnectionFactory);
-        container.addMessageListener(listenerAdapter, new PatternTopic("onDoor"));
+        if (redisNearCache.isEnabled()) {
+            // 本地缓存失效广播
+            container.addMessageListener(redisNearCache, new ChannelTopic(properties.getNearCache().getChannel()));
+        }
         return container;
     }
 
+    /**
+     * 事件频道路由，事件频道随 on / cancel 动态订阅
+     */
+    @Bean
+    public RedisEventChannels redisEventChannels(RedisMessageListenerContainer container, MessageListenerAdapter listenerAdapter,
+                                                 RediscProperties properties) {
+        return new RedisEventChannels(container, listenerAdapter, properties);
+    }
+
+    /**
+     * 本地一级缓存
+     */
+    @Bean
+    public RedisNearCache redisNearCache(RediscProperties properties, RedisTemplate<Object, Object> redisTemplate) {
+        return new RedisNearCache(properties, redisTemplate);
+    }
+
+    /**
+     * 防击穿的缓存加载
+     */
     @Bean
-    public RedisReceiver getRedisReceiver() {
-        return new RedisReceiver();
+    public RedisCacheLoader redisCacheLoader(RedisTemplate<Object, Object> redisTemplate, RedisNearCache redisNearCache,
+                                             RediscProperties properties) {
+        return new RedisCacheLoader(redisTemplate, redisNearCache, properties);
+    }
+
+    /**
+     * 热点字段的延迟写入
+     */
+    @Bean
+    public RedisWriteBehind redisWriteBehind(RedisTemplate<Object, Object> redisTemplate, RedisNearCache redisNearCache,
+                                             RediscProperties properties, RediscMetrics rediscMetrics) {
+        return new RedisWriteBehind(redisTemplate, redisNearCache, properties, rediscMetrics);
+    }
+
+    @Bean
+    public RedisReplyRegistry redisReplyRegistry() {
+        return new RedisReplyRegistry();
+    }
+
+    @Bean
+    public RedisEventDispatcher redisEventDispatcher(RediscProperties properties) {
+        return new RedisEventDispatcher(properties);
+    }
+
+    @Bean
+    public RedisReceiver getRedisReceiver(RedisReplyRegistry redisReplyRegistry, RedisEventDispatcher redisEventDispatcher,
+                                          ObjectProvider<RedisService> redisService, RediscMetrics rediscMetrics) {
+        return new RedisReceiver(redisReplyRegistry, redisEventDispatcher, redisService, rediscMetrics);
     }
 
     /**
@@ -120,7 +188,55 @@ public class RedisConfig extends CachingConfigurerSupport {
     }
 
     @Bean
-    public RedisQueue redisQueueTemplate(StringRedisTemplate stringRedisTemplate, RedisService redisService) {
-        return new RedisQueue(stringRedisTemplate, redisService);
+    public RedisStreamQueue redisStreamQueue(RedisTemplate<Object, Object> redisTemplate, RediscProperties properties,
+                                             RedisReceiver redisReceiver) {
+        return new RedisStreamQueue(redisTemplate, properties, redisReceiver);
+    }
+
+    @Bean
+    public RedisQueue redisQueueTemplate(StringRedisTemplate stringRedisTemplate, RedisService redisService, RediscProperties properties,
+                                         RediscMetrics rediscMetrics) {
+        RedisQueue redisQueue = new RedisQueue(stringRedisTemplate, redisService, properties);
+        redisQueue.setMetrics(rediscMetrics);
+        return redisQueue;
+    }
+
+    @Bean
+    public RedisDelayQueue redisDelayQueue(StringRedisTemplate stringRedisTemplate, RedisQueue redisQueue, RediscProperties properties) {
+        return new RedisDelayQueue(stringRedisTemplate, redisQueue, properties);
+    }
+
+    @Bean
+    public RedisPartitionedQueue redisPartitionedQueue(StringRedisTemplate stringRedisTemplate, RedisQueue redisQueue,
+                                                       RedisService redisService, RediscProperties properties) {
+        return new RedisPartitionedQueue(stringRedisTemplate, redisQueue, redisService, properties);
+    }
+
+    /**
+     * 缓存读取路由，连接工厂不注册为 bean，避免影响默认的 RedisConnectionFactory
+     */
+    @Bean
+    public RedisReadRouting redisReadRouting(RediscProperties properties, ObjectProvider<RedisProperties> redisProperties,
+                                             RedisTemplate<Object, Object> redisTemplate) {
+        return new RedisReadRouting(properties, redisProperties.getIfAvailable(), redisTemplate);
+    }
+
+    /**
+     * 分布式锁，释放通知经消息监听容器接收
+     */
+    @Bean
+    public RedisLockManager redisLockManager(StringRedisTemplate stringRedisTemplate, RedisMessageListenerContainer container,
+                                             RediscProperties properties, RediscMetrics rediscMetrics) {
+        return new RedisLockManager(stringRedisTemplate, container, properties, rediscMetrics);
+    }
+
+    /**
+     * 隔离对 micrometer 类的引用，没有 micrometer 时不会加载
+     */
+    private static final class MicrometerSupport {
+        private static RediscMetrics create(ApplicationContext applicationContext, RediscProperties.Metrics config) {
+            MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+            return registry == null ? RediscMetrics.NOOP : new MicrometerRediscMetrics(registry, config);
+        }
     }
 }
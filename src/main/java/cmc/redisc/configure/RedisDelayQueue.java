@@ -0,0 +1,239 @@
+package cmc.redisc.configure;
+
+import cmc.redisc.keyMing.RedisKeys;
+import cmc.redisc.service.RedisService;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 延迟队列
+ * <p>
+ * 任务以执行时间为分数存入 ZSET {队列名}:delayed，到期后由服务端脚本按批移入 {@link RedisQueue} 的列表队列，
+ * 消费方式与普通队列相同。搬运线程按最早到期时间等待，本节点写入更早到期的任务时提前唤醒；
+ * 其它节点写入的任务最迟在 redisc.delay.max-idle 后被发现
+ */
+@Slf4j
+public class RedisDelayQueue implements DisposableBean {
+
+    /**
+     * 移出到期任务并放入列表队列，返回移动数与下一个任务的执行时间
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> MOVE_SCRIPT = new DefaultRedisScript<>(
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))\n" +
+            "if #due > 0 then\n" +
+            "  redis.call('RPUSH', KEYS[2], unpack(due))\n" +
+            "  redis.call('ZREM', KEYS[1], unpack(due))\n" +
+            "end\n" +
+            "local next = redis.call('ZRANGE', KEYS[1], 0, 0, 'WITHSCORES')\n" +
+            "return {tostring(#due), next[2] or '-1'}", List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisQueue redisQueue;
+    private final RediscProperties.Delay config;
+
+    /**
+     * 由本节点搬运的队列
+     */
+    private final Set<String> queues = new CopyOnWriteArraySet<>();
+
+    private final Object monitor = new Object();
+
+    /**
+     * 搬运线程计划的唤醒时间
+     */
+    private long wakeAt = Long.MAX_VALUE;
+    private boolean signalled;
+
+    private volatile Thread mover;
+    private volatile boolean running = true;
+
+    public RedisDelayQueue(StringRedisTemplate redisTemplate, RedisQueue redisQueue, RediscProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.redisQueue = redisQueue;
+        this.config = properties.getDelay();
+    }
+
+    /**
+     * 延迟入队
+     *
+     * @param queueName 队列名
+     * @param delay     延迟时间
+     * @param unit      时间单位
+     * @param args      任务数据
+     * @return 入队的任务
+     */
+    public TaskSynData<Object> push(final String queueName, long delay, TimeUnit unit, Object... args) {
+        return pushAt(queueName, System.currentTimeMillis() + unit.toMillis(delay), args);
+    }
+
+    /**
+     * 定时入队
+     *
+     * @param queueName 队列名
+     * @param executeAt 执行时间，毫秒时间戳
+     * @param args      任务数据
+     * @return 入队的任务
+     */
+    public TaskSynData<Object> pushAt(final String queueName, long executeAt, Object... args) {
+        TaskSynData<Object> taskSynData = new TaskSynData<>();
+        RedisService.genParameter(taskSynData, args);
+        // 与列表队列一致，以字符串原样写入
+        byte[] key = getByte(delayedKeyOf(queueName));
+        byte[] member = getByte(JSON.toJSONString(taskSynData));
+        redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.zAdd(key, executeAt, member));
+        wakeIfEarlier(executeAt);
+        return taskSynData;
+    }
+
+    /**
+     * 未到期的任务数
+     */
+    public long size(final String queueName) {
+        byte[] key = getByte(delayedKeyOf(queueName));
+        Long size = redisTemplate.execute((RedisCallback<Long>) connection -> connection.zCard(key));
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * 由本节点搬运到期任务，多个节点同时搬运同一个队列也不会重复投递
+     */
+    public void startMover(final String queueName) {
+        // 提前校验队列名，避免搬运线程反复失败
+        delayedKeyOf(queueName);
+        if (queues.add(queueName)) {
+            ensureMover();
+            wakeIfEarlier(0);
+        }
+    }
+
+    /**
+     * 停止搬运
+     */
+    public void stopMover(final String queueName) {
+        queues.remove(queueName);
+    }
+
+    /**
+     * 搬运到期任务并订阅列表队列
+     *
+     * @param queueName 队列名
+     * @param handler   任务处理函数
+     * @return 已启动的消费者
+     */
+    public RedisQueueConsumer subscribe(final String queueName, Consumer<TaskSynData<?>> handler) {
+        startMover(queueName);
+        return redisQueue.subscribe(queueName, handler);
+    }
+
+    private synchronized void ensureMover() {
+        if (mover == null) {
+            Thread thread = new Thread(this::run, "redisc-delay-mover");
+            thread.setDaemon(true);
+            mover = thread;
+            thread.start();
+        }
+    }
+
+    private void run() {
+        long maxIdle = Math.max(1, config.getMaxIdle().toMillis());
+        while (running) {
+            long next = Long.MAX_VALUE;
+            boolean more = false;
+            try {
+                for (String queueName : queues) {
+                    long[] result = move(queueName);
+                    more |= result[0] >= config.getBatchSize();
+                    if (result[1] >= 0) {
+                        next = Math.min(next, result[1]);
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("搬运延迟任务出现异常", e);
+            }
+            if (!more) {
+                await(Math.min(next, System.currentTimeMillis() + maxIdle));
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private long[] move(String queueName) {
+        RedisSerializer serializer = redisTemplate.getStringSerializer();
+        List<String> result = redisTemplate.execute(MOVE_SCRIPT, serializer, serializer,
+                Arrays.asList(delayedKeyOf(queueName), queueName),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(config.getBatchSize()));
+        if (result == null || result.size() < 2) {
+            return new long[]{0, -1};
+        }
+        return new long[]{Long.parseLong(result.get(0)), (long) Double.parseDouble(result.get(1))};
+    }
+
+    private void await(long until) {
+        synchronized (monitor) {
+            wakeAt = until;
+            try {
+                long wait;
+                while (!signalled && running && (wait = wakeAt - System.currentTimeMillis()) > 0) {
+                    monitor.wait(wait);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } finally {
+                signalled = false;
+                wakeAt = Long.MAX_VALUE;
+            }
+        }
+    }
+
+    private void wakeIfEarlier(long executeAt) {
+        if (mover == null) {
+            return;
+        }
+        synchronized (monitor) {
+            if (executeAt < wakeAt) {
+                signalled = true;
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private byte[] getByte(String value) {
+        return redisTemplate.getStringSerializer().serialize(value);
+    }
+
+    /**
+     * 与列表队列同一槽位的 ZSET 键，搬运脚本同时操作两个键
+     *
+     * @throws IllegalArgumentException 队列名无法构造同槽位的键
+     */
+    static String delayedKeyOf(String queueName) {
+        return RedisKeys.sameSlot(queueName, ":delayed");
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+        Thread thread = mover;
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package cmc.redisc.configure;
+
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 事件频道路由
+ * <p>
+ * 每个事件名对应独立频道 onDoor:&lt;name&gt;，节点只订阅自己监听的事件，
+ * 不再接收并解码全部事件。开启 redisc.event.legacy-channel 后所有事件仍走共享频道 onDoor。
+ * 应答只发往请求方节点的收件箱 onDoor:reply:&lt;nodeId&gt;
+ */
+public class RedisEventChannels {
+
+    /**
+     * 共享频道
+     */
+    public static final String LEGACY_CHANNEL = "onDoor";
+
+    private final RedisMessageListenerContainer container;
+    private final MessageListener listener;
+    private final boolean legacy;
+    private final String inbox;
+
+    /**
+     * 已订阅的事件频道
+     */
+    private final Map<String, ChannelTopic> subscribed = new ConcurrentHashMap<>();
+
+    public RedisEventChannels(RedisMessageListenerContainer container, MessageListener listener, RediscProperties properties) {
+        this.container = container;
+        this.listener = listener;
+        this.legacy = properties.getEvent().isLegacyChannel();
+        this.inbox = LEGACY_CHANNEL + ":reply:" + properties.getNodeId();
+        if (legacy) {
+            container.addMessageListener(listener, new PatternTopic(LEGACY_CHANNEL));
+        }
+        // 本节点的应答收件箱
+        container.addMessageListener(listener, new ChannelTopic(inbox));
+    }
+
+    /**
+     * 本节点的应答收件箱频道
+     */
+    public String inbox() {
+        return inbox;
+    }
+
+    /**
+     * 事件对应的频道
+     */
+    public String channelOf(String name) {
+        return legacy ? LEGACY_CHANNEL : LEGACY_CHANNEL + ":" + name;
+    }
+
+    /**
+     * 订阅事件频道，已订阅时忽略
+     */
+    public void subscribe(String name) {
+        if (legacy) {
+            return;
+        }
+        subscribed.computeIfAbsent(name, n -> {
+            ChannelTopic topic = new ChannelTopic(channelOf(n));
+            container.addMessageListener(listener, topic);
+            return topic;
+        });
+    }
+
+    /**
+     * 取消订阅事件频道
+     */
+    public void unsubscribe(String name) {
+        if (legacy) {
+            return;
+        }
+        ChannelTopic topic = subscribed.remove(name);
+        if (topic != null) {
+            container.removeMessageListener(listener, topic);
+        }
+    }
+
+    public boolean isLegacy() {
+        return legacy;
+    }
+}
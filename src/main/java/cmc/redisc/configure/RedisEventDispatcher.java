@@ -0,0 +1,250 @@
+package cmc.redisc.configure;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 事件处理调度
+ * <p>
+ * 监听函数不再在接收线程上执行，而是提交到按事件名配置的有界线程池，一个慢的监听函数不会阻塞其它事件。
+ * 开启有序处理时同一分区键固定落在同一单线程通道上，按到达顺序执行
+ */
+@Slf4j
+public class RedisEventDispatcher implements DisposableBean {
+
+    private static final String DEFAULT_POOL = "default";
+
+    private final RediscProperties.Dispatch config;
+
+    /**
+     * 线程池，键为事件名或 default
+     */
+    private final Map<String, Lanes> pools = new ConcurrentHashMap<>();
+
+    private final Map<String, EventStats> stats = new ConcurrentHashMap<>();
+
+    public RedisEventDispatcher(RediscProperties properties) {
+        this.config = properties.getDispatch();
+    }
+
+    /**
+     * 提交事件处理
+     *
+     * @param name         事件名
+     * @param partitionKey 分区键，有序处理时使用
+     * @param task         处理逻辑
+     */
+    public void dispatch(String name, String partitionKey, Runnable task) {
+        EventStats eventStats = stats.computeIfAbsent(name, k -> new EventStats());
+        Lanes lanes = lanesOf(name);
+        Runnable timed = () -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                eventStats.failed.increment();
+                log.error("redis事件 {} 执行出现异常", name, e);
+            } finally {
+                eventStats.record(System.nanoTime() - start);
+            }
+        };
+        int index = lanes.indexOf(partitionKey);
+        Semaphore slot = lanes.slots == null ? null : lanes.slots[index];
+        Runnable submitted = timed;
+        if (slot != null) {
+            // 有序通道饱和时在此等待空位，不在接收线程上执行，避免越过通道中排队的同分区事件
+            try {
+                slot.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                eventStats.rejected.increment();
+                log.error("redis事件 {} 等待处理通道时被中断，事件被拒绝", name);
+                return;
+            }
+            submitted = () -> {
+                try {
+                    timed.run();
+                } finally {
+                    slot.release();
+                }
+            };
+        }
+        try {
+            lanes.executors[index].execute(submitted);
+        } catch (RejectedExecutionException e) {
+            if (slot != null) {
+                // 占位保证通道不会满，只有关闭后才会拒绝
+                slot.release();
+                eventStats.rejected.increment();
+                log.error("redis事件 {} 处理线程池已关闭，事件被拒绝", name);
+                return;
+            }
+            switch (lanes.config.getRejectPolicy()) {
+                case CALLER_RUNS:
+                    timed.run();
+                    break;
+                case DROP:
+                    eventStats.dropped.increment();
+                    break;
+                default:
+                    eventStats.rejected.increment();
+                    log.error("redis事件 {} 处理线程池已满，事件被拒绝", name);
+            }
+        }
+    }
+
+    /**
+     * 事件所在线程池的排队数
+     */
+    public int getQueueDepth(String name) {
+        Lanes lanes = pools.get(config.getEvents().containsKey(name) ? name : DEFAULT_POOL);
+        return lanes == null ? 0 : lanes.queueDepth();
+    }
+
+    /**
+     * 各事件的处理统计
+     */
+    public Map<String, EventStats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        for (Lanes lanes : pools.values()) {
+            lanes.shutdown();
+        }
+        for (Lanes lanes : pools.values()) {
+            lanes.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private Lanes lanesOf(String name) {
+        RediscProperties.Executor executor = config.getEvents().get(name);
+        if (executor != null) {
+            return pools.computeIfAbsent(name, k -> new Lanes(k, executor));
+        }
+        return pools.computeIfAbsent(DEFAULT_POOL, k -> new Lanes(k, config.getDefaults()));
+    }
+
+    /**
+     * 线程池，有序处理时拆为多个单线程通道
+     */
+    private static final class Lanes {
+        private final RediscProperties.Executor config;
+        private final ThreadPoolExecutor[] executors;
+
+        /**
+         * 有序且 CALLER_RUNS 时每个通道的空位，数量等于排队容量，任务执行完才归还，提交时队列一定有位置
+         */
+        private final Semaphore[] slots;
+
+        private Lanes(String name, RediscProperties.Executor config) {
+            this.config = config;
+            int threads = Math.max(1, config.getThreads());
+            AtomicInteger index = new AtomicInteger();
+            ThreadFactory factory = r -> new Thread(r, "redisc-event-" + name + "-" + index.incrementAndGet());
+            if (config.isOrdered()) {
+                int capacity = Math.max(1, config.getQueueCapacity() / threads);
+                executors = new ThreadPoolExecutor[threads];
+                slots = config.getRejectPolicy() == RediscProperties.RejectPolicy.CALLER_RUNS ? new Semaphore[threads] : null;
+                for (int i = 0; i < threads; i++) {
+                    executors[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(capacity), factory);
+                    if (slots != null) {
+                        slots[i] = new Semaphore(capacity);
+                    }
+                }
+            } else {
+                executors = new ThreadPoolExecutor[]{new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())), factory)};
+                slots = null;
+            }
+        }
+
+        private int indexOf(String partitionKey) {
+            if (executors.length == 1 || partitionKey == null) {
+                return 0;
+            }
+            return (partitionKey.hashCode() & Integer.MAX_VALUE) % executors.length;
+        }
+
+        private int queueDepth() {
+            int depth = 0;
+            for (ThreadPoolExecutor executor : executors) {
+                depth += executor.getQueue().size();
+            }
+            return depth;
+        }
+
+        private void shutdown() {
+            for (ThreadPoolExecutor executor : executors) {
+                executor.shutdown();
+            }
+        }
+
+        private void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            for (ThreadPoolExecutor executor : executors) {
+                executor.awaitTermination(timeout, unit);
+            }
+        }
+    }
+
+    /**
+     * 单个事件的处理统计
+     */
+    public static final class EventStats {
+        private final LongAdder handled = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            handled.increment();
+            totalNanos.add(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // 重试
+            }
+        }
+
+        public long getHandled() {
+            return handled.sum();
+        }
+
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getDropped() {
+            return dropped.sum();
+        }
+
+        /**
+         * 平均处理耗时，纳秒
+         */
+        public long getAverageNanos() {
+            long count = handled.sum();
+            return count == 0 ? 0 : totalNanos.sum() / count;
+        }
+
+        /**
+         * 最大处理耗时，纳秒
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+    }
+}
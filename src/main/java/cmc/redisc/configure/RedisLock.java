@@ -0,0 +1,87 @@
+package cmc.redisc.configure;
+
+/**
+ * 已取得的分布式锁，由 {@link RedisLockManager} 创建
+ * <p>
+ * 锁不可重入，也不绑定线程，可以在其它线程释放。写入受保护的资源时带上 {@link #getToken()}，
+ * 资源方拒绝比已见过的更小的令牌，租期过期后旧持有者的迟到写入不会生效
+ */
+public class RedisLock implements AutoCloseable {
+
+    private final RedisLockManager manager;
+    private final String name;
+    private final String owner;
+    private final long token;
+
+    /**
+     * 看门狗续期失败或已释放
+     */
+    private volatile boolean held = true;
+
+    /**
+     * 看门狗任务，固定租期时为空
+     */
+    private volatile Runnable cancelRenewal;
+
+    RedisLock(RedisLockManager manager, String name, String owner, long token) {
+        this.manager = manager;
+        this.name = name;
+        this.owner = owner;
+        this.token = token;
+    }
+
+    /**
+     * 锁名
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 防护令牌，同一锁名每次加锁单调递增
+     */
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * 是否仍持有；续期失败（如 Redis 长时间不可用导致租期过期）后为 false
+     */
+    public boolean isHeld() {
+        return held;
+    }
+
+    /**
+     * 释放锁，只删除自己持有的锁并唤醒等待者，重复调用无影响
+     *
+     * @return 释放时是否仍持有
+     */
+    public boolean unlock() {
+        if (!held) {
+            return false;
+        }
+        lost();
+        return manager.release(name, owner);
+    }
+
+    @Override
+    public void close() {
+        unlock();
+    }
+
+    String getOwner() {
+        return owner;
+    }
+
+    void setCancelRenewal(Runnable cancelRenewal) {
+        this.cancelRenewal = cancelRenewal;
+    }
+
+    void lost() {
+        held = false;
+        Runnable cancel = cancelRenewal;
+        if (cancel != null) {
+            cancel.run();
+        }
+    }
+}
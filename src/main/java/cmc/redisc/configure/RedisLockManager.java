@@ -0,0 +1,225 @@
+package cmc.redisc.configure;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分布式锁
+ * <p>
+ * 加锁以脚本执行 SET NX PX 并对 {锁名}:fence 计数 INCR 得到防护令牌；释放时脚本核对持有者后删除，
+ * 并在 redisc.lock.channel 上发布锁名。等待者收到发布后立即重试，不再轮询，
+ * 错过的通知最迟在锁的剩余租期后补上。未指定租期的锁由看门狗每 1/3 租期续期，直到释放
+ */
+@Slf4j
+public class RedisLockManager implements MessageListener, DisposableBean {
+
+    /**
+     * 加锁成功返回防护令牌，失败返回剩余租期的相反数
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then\n" +
+            "  return redis.call('INCR', KEYS[2])\n" +
+            "end\n" +
+            "return -math.max(redis.call('PTTL', KEYS[1]), 0)", Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  redis.call('DEL', KEYS[1])\n" +
+            "  redis.call('PUBLISH', ARGV[2], ARGV[3])\n" +
+            "  return 1\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "  return redis.call('PEXPIRE', KEYS[1], ARGV[2])\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RediscProperties.Lock config;
+    private final RediscMetrics metrics;
+
+    /**
+     * 本节点各锁名的等待者
+     */
+    private final Map<String, Waiters> waiting = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService watchdog;
+
+    public RedisLockManager(StringRedisTemplate redisTemplate, RedisMessageListenerContainer container, RediscProperties properties,
+                            RediscMetrics metrics) {
+        this.redisTemplate = redisTemplate;
+        this.config = properties.getLock();
+        this.metrics = metrics;
+        AtomicInteger index = new AtomicInteger();
+        this.watchdog = Executors.newScheduledThreadPool(Math.max(1, config.getWatchdogThreads()), r -> {
+            Thread thread = new Thread(r, "redisc-lock-watchdog-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        container.addMessageListener(this, new ChannelTopic(config.getChannel()));
+    }
+
+    /**
+     * 尝试加锁
+     *
+     * @param name      锁名
+     * @param waitTime  最长等待时间，0 表示只尝试一次，Long.MAX_VALUE 表示一直等待
+     * @param leaseTime 租期，小于等于 0 时使用 redisc.lock.lease-time 并由看门狗续期
+     * @param unit      时间单位
+     * @return 取得的锁，超时或线程被中断时为 null
+     */
+    public RedisLock tryLock(String name, long waitTime, long leaseTime, TimeUnit unit) {
+        boolean renew = leaseTime <= 0;
+        long lease = renew ? config.getLeaseTime().toMillis() : unit.toMillis(leaseTime);
+        long start = System.nanoTime();
+        // toNanos 对过大的值取 Long.MAX_VALUE，按已等待时长计算剩余时间，不计算截止时刻，避免溢出
+        long wait = waitTime == Long.MAX_VALUE ? Long.MAX_VALUE : unit.toNanos(waitTime);
+        String owner = UUID.randomUUID().toString();
+        RedisLock lock = null;
+        Waiters waiters = null;
+        try {
+            while (true) {
+                long generation = 0;
+                if (waiters != null) {
+                    synchronized (waiters) {
+                        generation = waiters.generation;
+                    }
+                }
+                long result = acquire(name, owner, lease);
+                if (result > 0) {
+                    lock = new RedisLock(this, name, owner, result);
+                    break;
+                }
+                long remaining = wait == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(wait - (System.nanoTime() - start));
+                if (remaining <= 0) {
+                    break;
+                }
+                if (waiters == null) {
+                    // 先登记再重试，登记前的释放通知不会丢失
+                    waiters = waiting.compute(name, (k, w) -> {
+                        Waiters next = w == null ? new Waiters() : w;
+                        next.count++;
+                        return next;
+                    });
+                    continue;
+                }
+                // 剩余租期后锁自然过期，不依赖通知
+                long pause = Math.min(remaining, result < 0 ? -result : 1);
+                synchronized (waiters) {
+                    if (waiters.generation == generation) {
+                        waiters.wait(Math.max(1, pause));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (waiters != null) {
+                waiting.computeIfPresent(name, (k, w) -> --w.count == 0 ? null : w);
+            }
+            metrics.recordLockWait(System.nanoTime() - start, lock != null);
+        }
+        if (lock != null && renew) {
+            scheduleRenewal(lock, lease);
+        }
+        return lock;
+    }
+
+    /**
+     * 释放通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Waiters waiters = waiting.get(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (waiters != null) {
+            synchronized (waiters) {
+                waiters.generation++;
+                waiters.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * 锁键，与防护计数同一槽位
+     */
+    String lockKeyOf(String name) {
+        return config.getKeyPrefix() + "{" + name + "}";
+    }
+
+    boolean release(String name, String owner) {
+        Long released = execute(RELEASE_SCRIPT, Arrays.asList(lockKeyOf(name)), owner, config.getChannel(), name);
+        return released != null && released == 1;
+    }
+
+    private long acquire(String name, String owner, long leaseMillis) {
+        String key = lockKeyOf(name);
+        Long result = execute(ACQUIRE_SCRIPT, Arrays.asList(key, key + ":fence"), owner, String.valueOf(leaseMillis));
+        return result == null ? 0 : result;
+    }
+
+    private void scheduleRenewal(RedisLock lock, long leaseMillis) {
+        long period = Math.max(1, leaseMillis / 3);
+        String key = lockKeyOf(lock.getName());
+        ScheduledFuture<?>[] task = new ScheduledFuture<?>[1];
+        task[0] = watchdog.scheduleAtFixedRate(() -> {
+            try {
+                Long renewed = execute(RENEW_SCRIPT, Arrays.asList(key), lock.getOwner(), String.valueOf(leaseMillis));
+                if (renewed == null || renewed == 0) {
+                    log.warn("redis锁 {} 续期失败，锁已不再持有", lock.getName());
+                    lock.lost();
+                }
+            } catch (RuntimeException e) {
+                // 租期内重试
+                log.warn("redis锁 {} 续期出现异常", lock.getName(), e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        lock.setCancelRenewal(() -> task[0].cancel(false));
+        if (!lock.isHeld()) {
+            task[0].cancel(false);
+        }
+    }
+
+    /**
+     * 参数以字符串写入，不经过值序列化
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Long execute(RedisScript<Long> script, List<String> keys, Object... args) {
+        RedisSerializer serializer = redisTemplate.getStringSerializer();
+        return (Long) redisTemplate.execute((RedisScript) script, serializer, serializer, keys, args);
+    }
+
+    /**
+     * 同一锁名的等待者，generation 在每次释放通知时递增
+     */
+    private static final class Waiters {
+        private int count;
+        private long generation;
+    }
+}
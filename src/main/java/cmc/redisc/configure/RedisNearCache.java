@@ -0,0 +1,374 @@
+package cmc.redisc.configure;
+
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地一级缓存
+ * <p>
+ * 位于 RedisService 读取之前，按最近最少使用淘汰并按 TTL 过期。
+ * 条目按 Redis 键分段加锁，LRU 在段内进行，读取只与同段的键竞争。
+ * 本节点写入时先丢弃本地条目，再通过 pub/sub 通知其它节点丢弃。
+ * 广播消息为 JSON 数组 [节点, 键1, Hash键1, 键2, Hash键2, ...]，批量失效时一条消息携带多个条目
+ */
+@Slf4j
+public class RedisNearCache implements MessageListener {
+
+    private final RediscProperties.NearCache config;
+    private final String nodeId;
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final byte[] channel;
+    private final long ttlMillis;
+
+    /**
+     * 按 Redis 键分段的失效序号，读取 redis 期间同一段发生过失效则不回填，其它键的失效不影响回填
+     */
+    private static final int STRIPES = 1024;
+
+    /**
+     * 条目分段数，同一 Redis 键的全部字段落在同一段
+     */
+    private static final int SEGMENTS = 16;
+
+    /**
+     * 一条失效广播最多携带的条目数
+     */
+    private static final int MESSAGE_BATCH = 500;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public RedisNearCache(RediscProperties properties, RedisTemplate<Object, Object> redisTemplate) {
+        this.config = properties.getNearCache();
+        this.nodeId = properties.getNodeId();
+        this.redisTemplate = redisTemplate;
+        this.channel = config.getChannel().getBytes(StandardCharsets.UTF_8);
+        this.ttlMillis = config.getTtl().toMillis();
+        int segmentSize = Math.max(1, (config.getMaximumSize() + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 键是否允许进入本地缓存
+     */
+    public boolean isCacheable(String key) {
+        if (!config.isEnabled() || key == null) {
+            return false;
+        }
+        List<String> prefixes = config.getPrefixes();
+        if (prefixes == null || prefixes.isEmpty()) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 读取前获取键当前的失效序号，回填时传入
+     *
+     * @param key Redis键
+     */
+    public long stamp(String key) {
+        return invalidations.get(stripe(key));
+    }
+
+    /**
+     * 获取本地条目，未命中返回null
+     *
+     * @param key  Redis键
+     * @param hKey Hash键，普通对象传null
+     */
+    public Object get(String key, String hKey) {
+        NearKey nearKey = new NearKey(key, hKey);
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            Entry entry = segment.entries.get(nearKey);
+            if (entry != null) {
+                if (entry.expireAt > System.currentTimeMillis()) {
+                    hitCount.increment();
+                    return entry.value;
+                }
+                segment.entries.remove(nearKey);
+                segment.unindex(nearKey);
+            }
+        }
+        missCount.increment();
+        return null;
+    }
+
+    /**
+     * 回填本地条目，读取期间发生过失效则放弃
+     *
+     * @param stamp 读取前通过 {@link #stamp(String)} 获取的序号
+     */
+    public void put(String key, String hKey, Object value, long stamp) {
+        if (value == null) {
+            return;
+        }
+        NearKey nearKey = new NearKey(key, hKey);
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            if (invalidations.get(stripe(key)) != stamp) {
+                return;
+            }
+            segment.entries.put(nearKey, new Entry(value, System.currentTimeMillis() + ttlMillis));
+            if (hKey != null) {
+                segment.hashIndex.computeIfAbsent(key, k -> new HashSet<>()).add(nearKey);
+            }
+        }
+    }
+
+    /**
+     * 丢弃本地条目并广播给其它节点
+     *
+     * @param key  Redis键
+     * @param hKey Hash键，为null时丢弃该键下的全部条目
+     */
+    public void invalidate(String key, String hKey) {
+        if (!isCacheable(key)) {
+            return;
+        }
+        evict(key, hKey);
+        publish(Arrays.asList(key, hKey));
+    }
+
+    /**
+     * 批量丢弃整键的本地条目，每 {@value #MESSAGE_BATCH} 个键广播一条消息
+     *
+     * @param keys Redis键
+     */
+    public void invalidateAll(Collection<String> keys) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        List<String> pairs = new ArrayList<>();
+        for (String key : keys) {
+            if (isCacheable(key)) {
+                evict(key, null);
+                pairs.add(key);
+                pairs.add(null);
+            }
+        }
+        publish(pairs);
+    }
+
+    /**
+     * 批量丢弃本地条目，每 {@value #MESSAGE_BATCH} 个条目广播一条消息
+     *
+     * @param fields 键为Redis键，值为Hash键，Hash键为null时丢弃该键下的全部条目
+     */
+    public void invalidateFields(Collection<? extends Map.Entry<String, String>> fields) {
+        if (!config.isEnabled()) {
+            return;
+        }
+        List<String> pairs = new ArrayList<>();
+        for (Map.Entry<String, String> field : fields) {
+            if (isCacheable(field.getKey())) {
+                evict(field.getKey(), field.getValue());
+                pairs.add(field.getKey());
+                pairs.add(field.getValue());
+            }
+        }
+        publish(pairs);
+    }
+
+    /**
+     * 清空本地缓存
+     */
+    public void clear() {
+        // 先推进全部序号，之后的回填都会放弃，再逐段清空
+        for (int i = 0; i < STRIPES; i++) {
+            invalidations.incrementAndGet(i);
+        }
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.hashIndex.clear();
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        List<String> body = JSON.parseArray(new String(message.getBody(), StandardCharsets.UTF_8), String.class);
+        if (body == null || body.size() < 3 || nodeId.equals(body.get(0))) {
+            return;
+        }
+        for (int i = 1; i + 1 < body.size(); i += 2) {
+            evict(body.get(i), body.get(i + 1));
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 广播失效条目，pairs 为键与Hash键交替排列
+     */
+    private void publish(List<String> pairs) {
+        for (int from = 0; from < pairs.size(); from += MESSAGE_BATCH * 2) {
+            List<String> chunk = pairs.subList(from, Math.min(pairs.size(), from + MESSAGE_BATCH * 2));
+            List<String> body = new ArrayList<>(chunk.size() + 1);
+            body.add(nodeId);
+            body.addAll(chunk);
+            try {
+                byte[] bytes = JSON.toJSONString(body).getBytes(StandardCharsets.UTF_8);
+                redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, bytes));
+            } catch (Exception e) {
+                log.error("本地缓存失效广播失败 {} 个条目，首个 key={}", chunk.size() / 2, chunk.get(0), e);
+            }
+        }
+    }
+
+    private void evict(String key, String hKey) {
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            invalidations.incrementAndGet(stripe(key));
+            if (hKey != null) {
+                NearKey nearKey = new NearKey(key, hKey);
+                segment.entries.remove(nearKey);
+                segment.unindex(nearKey);
+                return;
+            }
+            segment.entries.remove(new NearKey(key, null));
+            Set<NearKey> fields = segment.hashIndex.remove(key);
+            if (fields != null) {
+                for (NearKey field : fields) {
+                    segment.entries.remove(field);
+                }
+            }
+        }
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * 段由失效序号所在分段决定，同一键的回填与失效在同一把锁下进行
+     */
+    private Segment segmentOf(String key) {
+        return segments[stripe(key) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * 一段条目，访问顺序的 LinkedHashMap 即段内 LRU
+     */
+    private final class Segment {
+        private final LinkedHashMap<NearKey, Entry> entries;
+
+        /**
+         * Hash 键到已缓存字段的索引，用于整键失效
+         */
+        private final Map<String, Set<NearKey>> hashIndex = new HashMap<>();
+
+        private Segment(final int maximumSize) {
+            this.entries = new LinkedHashMap<NearKey, Entry>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<NearKey, Entry> eldest) {
+                    if (size() > maximumSize) {
+                        unindex(eldest.getKey());
+                        evictionCount.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private void unindex(NearKey nearKey) {
+            if (nearKey.hKey == null) {
+                return;
+            }
+            Set<NearKey> fields = hashIndex.get(nearKey.key);
+            if (fields != null && fields.remove(nearKey) && fields.isEmpty()) {
+                hashIndex.remove(nearKey.key);
+            }
+        }
+    }
+
+    private static final class NearKey {
+        private final String key;
+        private final String hKey;
+        private final int hash;
+
+        private NearKey(String key, String hKey) {
+            this.key = key;
+            this.hKey = hKey;
+            this.hash = 31 * key.hashCode() + (hKey == null ? 0 : hKey.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof NearKey)) {
+                return false;
+            }
+            NearKey other = (NearKey) o;
+            return key.equals(other.key) && Objects.equals(hKey, other.hKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expireAt;
+
+        private Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
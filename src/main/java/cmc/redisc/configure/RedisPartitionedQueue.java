@@ -0,0 +1,265 @@
+package cmc.redisc.configure;
+
+import cmc.redisc.service.RedisService;
+import com.alibaba.fastjson.JSON;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 分区队列
+ * <p>
+ * 一个逻辑队列分散到 N 个列表 {队列名:i}，集群下各分区按哈希标签落在不同槽位，不再受单个分片的吞吐限制。
+ * 生产方按轮询或路由键选择分区，消费方优先拉取自己负责的分区，全部为空时从其它分区窃取任务。
+ * 各节点的生产方与消费方必须使用相同的分区数
+ */
+public class RedisPartitionedQueue {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisQueue redisQueue;
+    private final RedisService redisService;
+    private final RediscProperties properties;
+
+    /**
+     * 各队列的轮询序号
+     */
+    private final Map<String, AtomicInteger> cursors = new ConcurrentHashMap<>();
+
+    public RedisPartitionedQueue(StringRedisTemplate redisTemplate, RedisQueue redisQueue, RedisService redisService,
+                                 RediscProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.redisQueue = redisQueue;
+        this.redisService = redisService;
+        this.properties = properties;
+    }
+
+    /**
+     * 队列的分区数，redisc.partition.queues 中未配置时使用 redisc.partition.partitions
+     */
+    public int partitionsOf(final String queueName) {
+        Integer partitions = properties.getPartition().getQueues().get(queueName);
+        return Math.max(1, partitions != null ? partitions : properties.getPartition().getPartitions());
+    }
+
+    /**
+     * 分区对应的列表键
+     */
+    public static String partitionKey(final String queueName, int partition) {
+        return "{" + queueName + ":" + partition + "}";
+    }
+
+    /**
+     * 轮询选择分区入队
+     */
+    public QueueEvent push(final String queueName, Object... args) {
+        int partitions = partitionsOf(queueName);
+        int index = cursors.computeIfAbsent(queueName, k -> new AtomicInteger()).getAndIncrement();
+        return pushTo(queueName, (index & Integer.MAX_VALUE) % partitions, args);
+    }
+
+    /**
+     * 按路由键选择分区入队，同一路由键的任务进入同一分区，在分区列表中按入队先后排列。
+     * 消费方的 concurrency 大于 1，或空闲的消费者从其它分区窃取任务时，处理顺序不作保证
+     */
+    public QueueEvent pushByKey(final String queueName, final String routingKey, Object... args) {
+        return pushTo(queueName, partitionOf(queueName, routingKey), args);
+    }
+
+    /**
+     * 路由键对应的分区
+     */
+    public int partitionOf(final String queueName, final String routingKey) {
+        return (routingKey.hashCode() & Integer.MAX_VALUE) % partitionsOf(queueName);
+    }
+
+    private QueueEvent pushTo(String queueName, int partition, Object[] args) {
+        TaskSynData<Object> taskSynData = new TaskSynData<>();
+        RedisService.genParameter(taskSynData, args);
+        String key = partitionKey(queueName, partition);
+        QueueEvent queueEvent = new QueueEvent(redisService);
+        queueEvent.setNum(redisQueue.rPush(key, JSON.toJSONString(taskSynData)));
+        queueEvent.setName(key);
+        queueEvent.setData(taskSynData);
+        return queueEvent;
+    }
+
+    /**
+     * 各分区的长度，按分区序号排列，全部 LLEN 经同一管道发送
+     */
+    public List<Long> lLenPartitions(final String queueName) {
+        int partitions = partitionsOf(queueName);
+        RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < partitions; i++) {
+                connection.lLen(serializer.serialize(partitionKey(queueName, i)));
+            }
+            return null;
+        });
+        return results.stream()
+                .map(result -> result instanceof Long ? (Long) result : 0L)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 全部分区的总长度
+     */
+    public long lLen(final String queueName) {
+        return lLenPartitions(queueName).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * 订阅全部分区，使用 redisc.consumer 默认参数
+     */
+    public RedisQueueConsumer subscribe(final String queueName, Consumer<TaskSynData<?>> handler) {
+        List<Integer> all = IntStream.range(0, partitionsOf(queueName)).boxed().collect(Collectors.toList());
+        return subscribe(queueName, all, QueueConsumerOptions.of(properties.getConsumer()), handler);
+    }
+
+    /**
+     * 订阅分区
+     *
+     * @param queueName 队列名
+     * @param owned     本消费者负责的分区，例如 M 个节点时第 m 个节点负责 i % M == m 的分区
+     * @param options   消费者参数；各分区都为空时以一次 BLPOP 在全部负责的分区上等待 1 秒，集群下各分区槽位不同，
+     *                  改为每次在一个负责的分区上等待并轮换；不使用 poll-timeout，以免其它分区的新任务等待过久
+     * @param handler   任务处理函数
+     * @return 已启动的消费者
+     */
+    public RedisQueueConsumer subscribe(final String queueName, Collection<Integer> owned, QueueConsumerOptions options,
+                                       Consumer<TaskSynData<?>> handler) {
+        int partitions = partitionsOf(queueName);
+        List<String> ownedKeys = new ArrayList<>();
+        List<String> otherKeys = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            (owned.contains(i) ? ownedKeys : otherKeys).add(partitionKey(queueName, i));
+        }
+        if (ownedKeys.isEmpty()) {
+            throw new IllegalArgumentException("队列 " + queueName + " 没有负责的分区");
+        }
+        for (String key : ownedKeys) {
+            redisQueue.monitor(key);
+        }
+        return redisQueue.start(new RedisQueueConsumer(queueName, new PartitionFetcher(ownedKeys, otherKeys), options, handler));
+    }
+
+    /**
+     * 依次非阻塞拉取负责的分区与其它分区，都为空时在负责的分区上 BLPOP 等待
+     */
+    private class PartitionFetcher implements RedisQueueConsumer.Fetcher {
+        private final List<String> owned;
+        private final List<String> others;
+        private int next;
+
+        /**
+         * 上一次 BLPOP 已覆盖全部负责的分区且超时，下一轮不再逐个拉取负责的分区
+         */
+        private boolean idle;
+
+        /**
+         * 最近一次取得任务的分区键
+         */
+        private String source;
+        private RedisConnection connection;
+
+        private PartitionFetcher(List<String> owned, List<String> others) {
+            this.owned = owned;
+            this.others = others;
+        }
+
+        @Override
+        public List<String> fetch(int max, Duration timeout) {
+            // 从上次的位置开始，各分区轮流优先
+            for (int i = 0; !idle && i < owned.size(); i++) {
+                String key = owned.get((next + i) % owned.size());
+                List<String> values = redisQueue.lPop(key, max);
+                if (!values.isEmpty()) {
+                    source = key;
+                    next = (next + i + 1) % owned.size();
+                    return values;
+                }
+            }
+            for (String key : others) {
+                List<String> values = redisQueue.lPop(key, max);
+                if (!values.isEmpty()) {
+                    idle = false;
+                    source = key;
+                    return values;
+                }
+            }
+            if (connection == null) {
+                connection = redisTemplate.getRequiredConnectionFactory().getConnection();
+            }
+            RedisSerializer<String> serializer = redisTemplate.getStringSerializer();
+            // 集群下多键命令要求同一槽位，只能在单个分区上等待，其余分区的任务在下一轮非阻塞拉取中取得
+            boolean single = connection instanceof RedisClusterConnection;
+            byte[][] keys = new byte[single ? 1 : owned.size()][];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = serializer.serialize(owned.get((next + i) % owned.size()));
+            }
+            next = (next + 1) % owned.size();
+            List<byte[]> popped;
+            try {
+                // 阻塞 1 秒，不使用 timeout
+                popped = connection.bLPop(1, keys);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            List<String> values = new ArrayList<>();
+            if (popped == null || popped.size() < 2) {
+                idle = !single;
+                return values;
+            }
+            idle = false;
+            String key = serializer.deserialize(popped.get(0));
+            source = key;
+            values.add(serializer.deserialize(popped.get(1)));
+            if (max > 1) {
+                values.addAll(redisQueue.lPop(key, max - 1));
+            }
+            return values;
+        }
+
+        @Override
+        public String source() {
+            return source;
+        }
+
+        @Override
+        public void giveBack(List<String> values) {
+            redisQueue.lPushBack(owned.get(0), values);
+        }
+
+        /**
+         * 放回取出时所在的分区，保持分区内的先后顺序
+         */
+        @Override
+        public void giveBack(String source, List<String> values) {
+            redisQueue.lPushBack(source != null ? source : owned.get(0), values);
+        }
+
+        @Override
+        public void close() {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } finally {
+                    connection = null;
+                }
+            }
+        }
+    }
+}
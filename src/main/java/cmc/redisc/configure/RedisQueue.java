@@ -1,35 +1,77 @@
 package cmc.redisc.configure;
 
 import cmc.redisc.service.RedisService;
-import cn.hutool.core.thread.ThreadUtil;
 import com.alibaba.fastjson.JSON;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Redis队列 实现类
  */
 @Slf4j
-public class RedisQueue {
+public class RedisQueue implements DisposableBean {
 
     private final StringRedisTemplate redisTemplate;
     private final RedisService redisService;
+    private final RediscProperties properties;
 
-    private static final String QUESUE_LOCK_KEY_SUFFIX = "_gsoft_lock";
+    /**
+     * 已启动的消费者
+     */
+    private final List<RedisQueueConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 已登记长度指标的队列
+     */
+    private final Set<String> monitored = ConcurrentHashMap.newKeySet();
+
+    private RediscMetrics metrics = RediscMetrics.NOOP;
+
+    /**
+     * 异步入队的写合并
+     */
+    private final RedisQueueWriter writer;
+
+    /**
+     * 批量出队脚本，LRANGE + LTRIM 在服务端原子执行，无需客户端加锁
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> BATCH_POP_SCRIPT = new DefaultRedisScript<>(
+            "local values = redis.call('LRANGE', KEYS[1], 0, tonumber(ARGV[1]) - 1)\n" +
+            "if #values > 0 then redis.call('LTRIM', KEYS[1], #values, -1) end\n" +
+            "return values", List.class);
 
     public RedisQueue(StringRedisTemplate redisTemplate, RedisService redisService) {
+        this(redisTemplate, redisService, new RediscProperties());
+    }
+
+    public RedisQueue(StringRedisTemplate redisTemplate, RedisService redisService, RediscProperties properties) {
         if (redisTemplate == null) {
             throw new RuntimeException("redisTemplate can not be null ");
         }
         this.redisTemplate = redisTemplate;
         this.redisService = redisService;
+        this.properties = properties;
+        this.writer = new RedisQueueWriter(properties.getPush(), this::rPush);
     }
 
     public QueueEvent push(final String queueName, Object... args) {
@@ -42,9 +84,40 @@ public class RedisQueue {
         return queueEvent;
     }
 
+    /**
+     * 异步入队，同一队列上并发的入队合并为一条多值 RPUSH
+     *
+     * @return 入队结果，num 为入队后的队列长度
+     */
+    public CompletableFuture<QueueEvent> pushAsync(final String queueName, Object... args) {
+        TaskSynData<Object> taskSynData = new TaskSynData<>();
+        RedisService.genParameter(taskSynData, args);
+        return rPushAsync(queueName, JSON.toJSONString(taskSynData)).thenApply(num -> {
+            QueueEvent queueEvent = new QueueEvent(redisService);
+            queueEvent.setNum(num);
+            queueEvent.setName(queueName);
+            queueEvent.setData(taskSynData);
+            return queueEvent;
+        });
+    }
+
+    /**
+     * 异步入队，按 redisc.push.max-batch / max-delay 合并写入
+     *
+     * @return 入队后队列长度的 future，写入失败时异常结束
+     */
+    public CompletableFuture<Long> rPushAsync(final String queueName, final String value) {
+        return writer.submit(queueName, Objects.requireNonNull(value));
+    }
+
     public long rPush(final String queueName, final String value) {
-        RedisConnection redisConnection = getRedisConnection();
-        return Optional.ofNullable(redisConnection.rPush(getByte(queueName), getByte(value))).orElse(-1L);
+        long start = System.nanoTime();
+        try {
+            RedisConnection redisConnection = getRedisConnection();
+            return Optional.ofNullable(redisConnection.rPush(getByte(queueName), getByte(value))).orElse(-1L);
+        } finally {
+            metrics.recordOperation("queue.push", System.nanoTime() - start);
+        }
     }
 
     public long rPush(final String queueName, final List<String> values) {
@@ -56,8 +129,13 @@ public class RedisQueue {
                     valuesByte.add(redisTemplate.getStringSerializer().serialize(value));
                 }
             }
-            return Optional.ofNullable(redisConnection.rPush(getByte(queueName),
-                    valuesByte.toArray(new byte[valuesByte.size()][]))).orElse(-1L);
+            long start = System.nanoTime();
+            try {
+                return Optional.ofNullable(redisConnection.rPush(getByte(queueName),
+                        valuesByte.toArray(new byte[valuesByte.size()][]))).orElse(-1L);
+            } finally {
+                metrics.recordOperation("queue.push", System.nanoTime() - start);
+            }
         }
         return 0L;
     }
@@ -69,35 +147,43 @@ public class RedisQueue {
         return JSON.parseObject(lPop(queueName), TaskSynData.class);
     }
 
+    /**
+     * 获取指定的数据格式，数据直接解码为 vClass
+     */
+    public <V> TaskSynData<V> pop(final String queueName, Class<V> vClass) {
+        String value = lPop(queueName);
+        return value == null ? null : TaskSynData.parse(value, vClass);
+    }
+
 
     public String lPop(final String queueName) {
-        RedisConnection redisConnection = getRedisConnection();
-        byte[] value = redisConnection.lPop(Objects.requireNonNull(redisTemplate.getStringSerializer().serialize((queueName))));
-        return redisTemplate.getStringSerializer().deserialize(value);
+        long start = System.nanoTime();
+        try {
+            RedisConnection redisConnection = getRedisConnection();
+            byte[] value = redisConnection.lPop(Objects.requireNonNull(redisTemplate.getStringSerializer().serialize((queueName))));
+            return redisTemplate.getStringSerializer().deserialize(value);
+        } finally {
+            metrics.recordOperation("queue.pop", System.nanoTime() - start);
+        }
     }
 
+    /**
+     * 批量出队，一次往返最多取出 length 条
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public List<String> lPop(final String queueName, final int length) {
-        RedisConnection connection = getRedisConnection();
-        List<String> values = new ArrayList<>();
-        byte[] key = getByte(queueName);
-        byte[] lockKey = getByte(queueName + QUESUE_LOCK_KEY_SUFFIX);
+        if (length <= 0) {
+            return new ArrayList<>();
+        }
+        RedisSerializer serializer = redisTemplate.getStringSerializer();
+        long start = System.nanoTime();
         try {
-            // 队列加锁
-            while (Boolean.FALSE.equals(connection.setNX(lockKey, key))) {
-                // 等待10毫秒
-                ThreadUtil.sleep(10);
-            }
-            connection.expire(lockKey, 5);// 设计锁的超时时间
-            List<byte[]> valuesByte = connection.lRange(key, 0, length - 1);
-            assert valuesByte != null;
-            connection.lTrim(key, valuesByte.size(), -1);
-            for (byte[] valueByte : valuesByte) {
-                values.add(redisTemplate.getStringSerializer().deserialize(valueByte));
-            }
+            List<String> values = redisTemplate.execute(BATCH_POP_SCRIPT, serializer, serializer,
+                    Collections.singletonList(queueName), String.valueOf(length));
+            return values == null ? new ArrayList<>() : values;
         } finally {
-            connection.del(lockKey);
+            metrics.recordOperation("queue.pop", System.nanoTime() - start);
         }
-        return values;
     }
 
     public List<String> lRange(final String queueName, final int length) {
@@ -125,6 +211,83 @@ public class RedisQueue {
     }
 
 
+    /**
+     * 订阅队列，使用 redisc.consumer 默认参数
+     *
+     * @param queueName 队列名
+     * @param handler   任务处理函数
+     * @return 已启动的消费者
+     */
+    public RedisQueueConsumer subscribe(final String queueName, Consumer<TaskSynData<?>> handler) {
+        return subscribe(queueName, QueueConsumerOptions.of(properties.getConsumer()), handler);
+    }
+
+    /**
+     * 订阅队列，由消费者以阻塞方式拉取，不需要自行轮询
+     *
+     * @param queueName 队列名
+     * @param options   消费者参数
+     * @param handler   任务处理函数
+     * @return 已启动的消费者
+     */
+    public RedisQueueConsumer subscribe(final String queueName, QueueConsumerOptions options, Consumer<TaskSynData<?>> handler) {
+        monitor(queueName);
+        return start(new RedisQueueConsumer(queueName, new ListFetcher(queueName), options, handler));
+    }
+
+    /**
+     * 登记队列长度指标 redisc.queue.depth，抓取指标时执行 LLEN；订阅的队列自动登记
+     */
+    public void monitor(final String queueName) {
+        if (monitored.add(queueName)) {
+            metrics.registerQueue(queueName, () -> lLen(queueName));
+        }
+    }
+
+    public void setMetrics(RediscMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 停止消费者并等待已取出的任务处理完毕
+     */
+    public void unsubscribe(RedisQueueConsumer consumer) {
+        consumers.remove(consumer);
+        consumer.stop();
+    }
+
+    @Override
+    public void destroy() {
+        // 写入尚未合并发送的值
+        writer.shutdown(properties.getConsumer().getShutdownTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        // 先全部发出停止信号，再逐个等待
+        for (RedisQueueConsumer consumer : consumers) {
+            consumer.shutdown();
+        }
+        for (RedisQueueConsumer consumer : consumers) {
+            consumer.awaitTermination();
+        }
+        consumers.clear();
+    }
+
+    RedisQueueConsumer start(RedisQueueConsumer consumer) {
+        consumers.add(consumer);
+        consumer.start();
+        return consumer;
+    }
+
+    /**
+     * 放回队首，保持原有顺序
+     */
+    void lPushBack(final String queueName, final List<String> values) {
+        byte[][] valuesByte = new byte[values.size()][];
+        for (int i = 0; i < values.size(); i++) {
+            // LPUSH 逐个插入队首，倒序传入
+            valuesByte[values.size() - 1 - i] = getByte(values.get(i));
+        }
+        redisTemplate.execute((RedisCallback<Long>) connection -> connection.lPush(getByte(queueName), valuesByte));
+    }
+
     private byte[] getByte(String queueName) {
         return redisTemplate.getStringSerializer().serialize((queueName));
     }
@@ -132,4 +295,60 @@ public class RedisQueue {
     private RedisConnection getRedisConnection() {
         return redisTemplate.execute((RedisCallback<RedisConnection>) connection -> connection);
     }
+
+    /**
+     * 列表队列的任务来源：先非阻塞批量出队，队列为空时在独占连接上 BLPOP 等待
+     */
+    private class ListFetcher implements RedisQueueConsumer.Fetcher {
+        private final String queueName;
+        private final byte[] key;
+        private RedisConnection connection;
+
+        private ListFetcher(String queueName) {
+            this.queueName = queueName;
+            this.key = getByte(queueName);
+        }
+
+        @Override
+        public List<String> fetch(int max, Duration timeout) {
+            List<String> values = lPop(queueName, max);
+            if (!values.isEmpty()) {
+                return values;
+            }
+            if (connection == null) {
+                connection = redisTemplate.getRequiredConnectionFactory().getConnection();
+            }
+            List<byte[]> popped;
+            try {
+                popped = connection.bLPop((int) Math.max(1, timeout.getSeconds()), key);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+            if (popped == null || popped.size() < 2) {
+                return values;
+            }
+            values.add(redisTemplate.getStringSerializer().deserialize(popped.get(1)));
+            if (max > 1) {
+                values.addAll(lPop(queueName, max - 1));
+            }
+            return values;
+        }
+
+        @Override
+        public void giveBack(List<String> values) {
+            lPushBack(queueName, values);
+        }
+
+        @Override
+        public void close() {
+            if (connection != null) {
+                try {
+                    connection.close();
+                } finally {
+                    connection = null;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,272 @@
+package cmc.redisc.configure;
+
+import cn.hutool.core.thread.ThreadUtil;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 队列消费者
+ * <p>
+ * 一个拉取线程以阻塞方式从 redis 取任务放入本地预取缓冲，缓冲满时暂停拉取；
+ * 若干处理线程从缓冲中取出任务解码为 {@link TaskSynData} 后交给处理函数。
+ * 停止时先停止拉取，再等待缓冲中的任务处理完毕，超时仍未处理的任务放回队首
+ */
+@Slf4j
+public class RedisQueueConsumer {
+
+    /**
+     * 任务来源
+     */
+    public interface Fetcher {
+        /**
+         * 取出最多 max 条任务，没有任务时最多阻塞 timeout
+         */
+        List<String> fetch(int max, Duration timeout);
+
+        /**
+         * 将未处理的任务放回队首
+         */
+        void giveBack(List<String> values);
+
+        /**
+         * 最近一次 fetch 取得的任务所在的键，任务来自多个键时用于放回原处；单个键时为 null
+         */
+        default String source() {
+            return null;
+        }
+
+        /**
+         * 将未处理的任务放回 source 所在队列的队首
+         *
+         * @param source 取出时 {@link #source()} 的值
+         */
+        default void giveBack(String source, List<String> values) {
+            giveBack(values);
+        }
+
+        /**
+         * 释放拉取占用的连接，在拉取线程上调用
+         */
+        void close();
+    }
+
+    private static final long WORKER_POLL_MILLIS = 200;
+
+    private final String queueName;
+    private final Fetcher fetcher;
+    private final Consumer<TaskSynData<?>> handler;
+    private final QueueConsumerOptions options;
+
+    private final BlockingQueue<Fetched> buffer = new LinkedBlockingQueue<>();
+
+    /**
+     * 缓冲剩余空间，拉取前获取，处理线程取走任务后归还
+     */
+    private final Semaphore space;
+
+    private final Thread fetchThread;
+    private final ThreadPoolExecutor workers;
+    private final CountDownLatch fetchDone = new CountDownLatch(1);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile boolean fetching = true;
+    private volatile boolean closed = false;
+
+    public RedisQueueConsumer(String queueName, Fetcher fetcher, QueueConsumerOptions options, Consumer<TaskSynData<?>> handler) {
+        if (options.getConcurrency() <= 0 || options.getPrefetch() <= 0) {
+            throw new IllegalArgumentException("concurrency 与 prefetch 必须大于0");
+        }
+        this.queueName = queueName;
+        this.fetcher = fetcher;
+        this.options = options;
+        this.handler = handler;
+        this.space = new Semaphore(options.getPrefetch());
+        this.fetchThread = new Thread(this::fetchLoop, "redisc-fetch-" + queueName);
+        this.fetchThread.setDaemon(true);
+        AtomicInteger index = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(options.getConcurrency(), options.getConcurrency(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> new Thread(r, "redisc-consume-" + queueName + "-" + index.incrementAndGet()));
+    }
+
+    public void start() {
+        if (running.compareAndSet(false, true)) {
+            fetchThread.start();
+            for (int i = 0; i < options.getConcurrency(); i++) {
+                workers.execute(this::workLoop);
+            }
+        }
+    }
+
+    /**
+     * 停止拉取并等待已取出的任务处理完毕
+     */
+    public void stop() {
+        shutdown();
+        awaitTermination();
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    /**
+     * 本地缓冲中待处理的任务数
+     */
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    /**
+     * 正在处理的任务数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isRunning() {
+        return running.get() && !closed;
+    }
+
+    /**
+     * 发出停止信号，不等待
+     */
+    void shutdown() {
+        fetching = false;
+    }
+
+    /**
+     * 等待停止完成，超时后中断处理线程并将剩余任务放回队首
+     */
+    void awaitTermination() {
+        if (closed) {
+            return;
+        }
+        long deadline = System.nanoTime() + options.getShutdownTimeout().toNanos();
+        try {
+            fetchDone.await(remaining(deadline), TimeUnit.NANOSECONDS);
+            workers.shutdown();
+            if (!workers.awaitTermination(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                log.warn("队列 {} 消费者停止超时，剩余任务放回队首", queueName);
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            closed = true;
+            giveBackBuffered();
+        }
+    }
+
+    private void fetchLoop() {
+        long pollMillis = options.getPollTimeout().toMillis();
+        try {
+            while (fetching) {
+                // 缓冲已满时在此等待，形成背压
+                if (!space.tryAcquire(pollMillis, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                int permits = 1 + space.drainPermits();
+                List<String> values;
+                try {
+                    values = fetcher.fetch(permits, options.getPollTimeout());
+                } catch (Exception e) {
+                    space.release(permits);
+                    log.error("队列 {} 拉取失败", queueName, e);
+                    ThreadUtil.sleep(Math.min(pollMillis, 1000));
+                    continue;
+                }
+                space.release(permits - values.size());
+                String source = fetcher.source();
+                for (String value : values) {
+                    buffer.add(new Fetched(source, value));
+                }
+                if (closed) {
+                    // 停止已超时结束，后到的任务直接放回
+                    giveBackBuffered();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                fetcher.close();
+            } finally {
+                fetchDone.countDown();
+            }
+        }
+    }
+
+    private void workLoop() {
+        try {
+            while (true) {
+                Fetched fetched = buffer.poll(WORKER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (fetched == null) {
+                    if (fetchDone.getCount() == 0 && buffer.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                space.release();
+                handle(fetched.value);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(String value) {
+        inFlight.incrementAndGet();
+        try {
+            handler.accept(JSON.parseObject(value, TaskSynData.class));
+        } catch (Exception e) {
+            log.error("队列 {} 任务处理异常: {}", queueName, value, e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void giveBackBuffered() {
+        List<Fetched> rest = new ArrayList<>();
+        buffer.drainTo(rest);
+        // 按来源分组，组内保持原有顺序
+        Map<String, List<String>> bySource = new LinkedHashMap<>();
+        for (Fetched fetched : rest) {
+            bySource.computeIfAbsent(fetched.source, k -> new ArrayList<>()).add(fetched.value);
+        }
+        for (Map.Entry<String, List<String>> entry : bySource.entrySet()) {
+            try {
+                fetcher.giveBack(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                log.error("队列 {} 有 {} 条任务放回失败: {}", queueName, entry.getValue().size(), entry.getValue(), e);
+            }
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    /**
+     * 缓冲中的任务及其来源
+     */
+    private static final class Fetched {
+        private final String source;
+        private final String value;
+
+        private Fetched(String source, String value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package cmc.redisc.configure;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * 异步入队的写合并
+ * <p>
+ * 同一队列上并发提交的值先进入缓冲，攒满 max-batch 条或首条等待超过 max-delay 后以一条多值 RPUSH 写入，
+ * 每个值的 future 以该值入队后的队列长度完成，与逐条 RPUSH 的返回值一致。
+ * 同一队列的批次按攒满的先后依次写入，同一时刻只有一个批次在写，先提交的值先入队
+ */
+@Slf4j
+class RedisQueueWriter {
+
+    private final int maxBatch;
+    private final long maxDelayNanos;
+
+    /**
+     * 批量写入，返回写入后的队列长度
+     */
+    private final BiFunction<String, List<String>, Long> writer;
+
+    /**
+     * 各队列正在攒批的缓冲
+     */
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * 各队列待写入的批次，队列名有限，不回收
+     */
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    RedisQueueWriter(RediscProperties.Push config, BiFunction<String, List<String>, Long> writer) {
+        this.maxBatch = Math.max(1, config.getMaxBatch());
+        this.maxDelayNanos = config.getMaxDelay().toNanos();
+        this.writer = writer;
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, config.getFlushThreads()), r -> {
+            Thread thread = new Thread(r, "redisc-push-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 提交一个值
+     *
+     * @return 入队后队列长度的 future
+     */
+    CompletableFuture<Long> submit(String queueName, String value) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        if (executor.isShutdown()) {
+            future.completeExceptionally(new RejectedExecutionException("队列写入已关闭"));
+            return future;
+        }
+        while (true) {
+            Batch batch = batches.computeIfAbsent(queueName, Batch::new);
+            boolean first;
+            boolean full;
+            Lane ready = null;
+            synchronized (batch) {
+                if (batch.closed) {
+                    // 刚被取走写入，换新的缓冲
+                    continue;
+                }
+                batch.values.add(value);
+                batch.futures.add(future);
+                first = batch.values.size() == 1;
+                full = batch.values.size() >= maxBatch;
+                if (full) {
+                    ready = close(batch);
+                }
+            }
+            if (full) {
+                ScheduledFuture<?> timer = batch.timer;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                drainLater(ready);
+            } else if (first) {
+                batch.timer = schedule(batch);
+            }
+            return future;
+        }
+    }
+
+    /**
+     * 写入全部缓冲并停止
+     */
+    void shutdown(long timeout, TimeUnit unit) {
+        for (Batch batch : batches.values()) {
+            drainLater(closeIfOpen(batch));
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ScheduledFuture<?> schedule(Batch batch) {
+        try {
+            return executor.schedule(() -> drain(closeIfOpen(batch)), maxDelayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // 关闭中且已错过 shutdown 的清扫，直接写入
+            drain(closeIfOpen(batch));
+            return null;
+        }
+    }
+
+    /**
+     * 关闭缓冲并放入所属队列的待写入批次
+     *
+     * @return 需要启动写入的队列，已有批次在写时为 null
+     */
+    private Lane closeIfOpen(Batch batch) {
+        synchronized (batch) {
+            return batch.closed ? null : close(batch);
+        }
+    }
+
+    /**
+     * 在缓冲锁内调用：先放入待写入批次再移除缓冲，后续缓冲的批次一定排在其后
+     */
+    private Lane close(Batch batch) {
+        batch.closed = true;
+        Lane lane = lanes.computeIfAbsent(batch.queueName, k -> new Lane());
+        boolean start;
+        synchronized (lane) {
+            lane.pending.add(batch);
+            start = !lane.flushing;
+            lane.flushing = true;
+        }
+        batches.remove(batch.queueName, batch);
+        return start ? lane : null;
+    }
+
+    private void drainLater(Lane lane) {
+        if (lane == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> drain(lane));
+        } catch (RejectedExecutionException e) {
+            drain(lane);
+        }
+    }
+
+    /**
+     * 依次写入队列的待写入批次，直到没有新的批次
+     */
+    private void drain(Lane lane) {
+        if (lane == null) {
+            return;
+        }
+        while (true) {
+            Batch batch;
+            synchronized (lane) {
+                batch = lane.pending.poll();
+                if (batch == null) {
+                    lane.flushing = false;
+                    return;
+                }
+            }
+            flush(batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        List<String> values = batch.values;
+        List<CompletableFuture<Long>> futures = batch.futures;
+        try {
+            long length = writer.apply(batch.queueName, values);
+            long first = length - values.size() + 1;
+            for (int i = 0; i < futures.size(); i++) {
+                futures.get(i).complete(first + i);
+            }
+        } catch (Throwable e) {
+            log.error("队列 {} 批量写入 {} 条失败", batch.queueName, values.size(), e);
+            for (CompletableFuture<Long> future : futures) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Lane {
+        private final ArrayDeque<Batch> pending = new ArrayDeque<>();
+        private boolean flushing;
+    }
+
+    private static final class Batch {
+        private final String queueName;
+        private final List<String> values = new ArrayList<>();
+        private final List<CompletableFuture<Long>> futures = new ArrayList<>();
+        private boolean closed;
+        private volatile ScheduledFuture<?> timer;
+
+        private Batch(String queueName) {
+            this.queueName = queueName;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package cmc.redisc.configure;
+
+import io.lettuce.core.ReadFrom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisNode;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 缓存读取的路由
+ * <p>
+ * redisc.read.mode 不为 MASTER 时，以独立的 Lettuce 连接按 ReadFrom 将可容忍延迟的读取发往从节点，
+ * 写入与 {@link #onMaster(Supplier)} 内的读取仍走主节点。拓扑来自 redisc.read.replicas（静态主从），
+ * 未配置时使用 spring.redis.sentinel 或 spring.redis.cluster；都没有时所有读取走主节点
+ */
+@Slf4j
+public class RedisReadRouting implements InitializingBean, DisposableBean {
+
+    /**
+     * 当前线程强制读主节点的嵌套层数
+     */
+    private static final ThreadLocal<int[]> MASTER_ONLY = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final RediscProperties.Read config;
+    private final RedisProperties redisProperties;
+    private final RedisTemplate<Object, Object> masterTemplate;
+
+    private LettuceConnectionFactory factory;
+    private volatile RedisTemplate<Object, Object> readTemplate;
+
+    public RedisReadRouting(RediscProperties properties, RedisProperties redisProperties, RedisTemplate<Object, Object> masterTemplate) {
+        this.config = properties.getRead();
+        this.redisProperties = redisProperties;
+        this.masterTemplate = masterTemplate;
+    }
+
+    /**
+     * 是否有读取被路由到从节点
+     */
+    public boolean isEnabled() {
+        return readTemplate != null;
+    }
+
+    /**
+     * 读取使用的模板，当前线程处于 {@link #onMaster(Supplier)} 内时为主节点模板
+     */
+    public RedisTemplate<Object, Object> template() {
+        RedisTemplate<Object, Object> template = readTemplate;
+        if (template == null || MASTER_ONLY.get()[0] > 0) {
+            return masterTemplate;
+        }
+        return template;
+    }
+
+    /**
+     * 在主节点上执行读取，用于写后立即读等不能容忍复制延迟的场景
+     */
+    public <T> T onMaster(Supplier<T> reads) {
+        int[] depth = MASTER_ONLY.get();
+        depth[0]++;
+        try {
+            return reads.get();
+        } finally {
+            if (--depth[0] == 0) {
+                MASTER_ONLY.remove();
+            }
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (config.getMode() == RediscProperties.ReadMode.MASTER) {
+            return;
+        }
+        RedisConfiguration configuration = topology();
+        if (configuration == null) {
+            log.warn("redisc.read.mode 为 {}，但未配置 redisc.read.replicas、sentinel 或 cluster，读取仍走主节点", config.getMode());
+            return;
+        }
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder()
+                .readFrom(readFrom(config.getMode()));
+        if (redisProperties != null && redisProperties.getTimeout() != null) {
+            client.commandTimeout(redisProperties.getTimeout());
+        }
+        if (redisProperties != null && redisProperties.isSsl()) {
+            client.useSsl();
+        }
+        factory = new LettuceConnectionFactory(configuration, client.build());
+        factory.afterPropertiesSet();
+        RedisTemplate<Object, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+        template.setKeySerializer(masterTemplate.getKeySerializer());
+        template.setValueSerializer(masterTemplate.getValueSerializer());
+        template.setHashKeySerializer(masterTemplate.getHashKeySerializer());
+        template.setHashValueSerializer(masterTemplate.getHashValueSerializer());
+        template.afterPropertiesSet();
+        readTemplate = template;
+    }
+
+    private RedisConfiguration topology() {
+        RedisProperties spring = redisProperties != null ? redisProperties : new RedisProperties();
+        RedisPassword password = RedisPassword.of(spring.getPassword());
+        if (!config.getReplicas().isEmpty()) {
+            RedisStaticMasterReplicaConfiguration configuration = new RedisStaticMasterReplicaConfiguration(spring.getHost(), spring.getPort());
+            for (String replica : config.getReplicas()) {
+                RedisNode node = RedisNode.fromString(replica);
+                configuration.addNode(node.getHost(), node.getPort());
+            }
+            configuration.setUsername(spring.getUsername());
+            configuration.setPassword(password);
+            configuration.setDatabase(spring.getDatabase());
+            return configuration;
+        }
+        if (spring.getSentinel() != null && spring.getSentinel().getMaster() != null) {
+            RedisSentinelConfiguration configuration = new RedisSentinelConfiguration();
+            configuration.master(spring.getSentinel().getMaster());
+            for (String node : spring.getSentinel().getNodes()) {
+                configuration.addSentinel(RedisNode.fromString(node));
+            }
+            configuration.setUsername(spring.getUsername());
+            configuration.setPassword(password);
+            configuration.setDatabase(spring.getDatabase());
+            return configuration;
+        }
+        if (spring.getCluster() != null && spring.getCluster().getNodes() != null && !spring.getCluster().getNodes().isEmpty()) {
+            RedisClusterConfiguration configuration = new RedisClusterConfiguration(spring.getCluster().getNodes());
+            if (spring.getCluster().getMaxRedirects() != null) {
+                configuration.setMaxRedirects(spring.getCluster().getMaxRedirects());
+            }
+            configuration.setUsername(spring.getUsername());
+            configuration.setPassword(password);
+            return configuration;
+        }
+        return null;
+    }
+
+    private static ReadFrom readFrom(RediscProperties.ReadMode mode) {
+        switch (mode) {
+            case REPLICA:
+                return ReadFrom.REPLICA;
+            case NEAREST:
+                return ReadFrom.LOWEST_LATENCY;
+            case REPLICA_PREFERRED:
+            default:
+                return ReadFrom.REPLICA_PREFERRED;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (factory != null) {
+            factory.destroy();
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package cmc.redisc.configure;
 
 import cmc.redisc.service.RedisService;
-import cn.hutool.extra.spring.SpringUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -15,19 +15,75 @@ public class RedisReceiver {
      */
     public static final Map<String, Function<TaskSynData<?>,?>> LISTEN_QUEUE = new ConcurrentHashMap<>();
 
+    private final RedisReplyRegistry replyRegistry;
+
+    private final RedisEventDispatcher dispatcher;
+
+    /**
+     * RedisService 依赖本类，首次应答时再获取
+     */
+    private final ObjectProvider<RedisService> redisServiceProvider;
+
+    private volatile RedisService redisService;
+
+    private final RediscMetrics metrics;
+
+    public RedisReceiver(RedisReplyRegistry replyRegistry, RedisEventDispatcher dispatcher, ObjectProvider<RedisService> redisServiceProvider,
+                         RediscMetrics metrics) {
+        this.replyRegistry = replyRegistry;
+        this.dispatcher = dispatcher;
+        this.redisServiceProvider = redisServiceProvider;
+        this.metrics = metrics;
+    }
+
     public void receiveMessage(TaskSynData<?> taskSynData ) {
-        if(LISTEN_QUEUE.containsKey(taskSynData.getName())){
-            // 存在监听者，进行调用
-            try{
-                Object obj = LISTEN_QUEUE.get(taskSynData.getName()).apply(taskSynData);
-                if(obj != null){
-                    // 进行事件反发布
-                    RedisService redisService = SpringUtil.getBean(RedisService.class);
-                    redisService.pu(taskSynData.getKey(),obj);
-                }
-            }catch (Exception e){
-                log.error("redis事件执行出现异常，请进行捕捉处理");
+        if(replyRegistry.complete(taskSynData)){
+            // 等待中的应答，直接完成
+            return;
+        }
+        Function<TaskSynData<?>,?> fun = LISTEN_QUEUE.get(taskSynData.getName());
+        if(fun == null){
+            return;
+        }
+        metrics.eventConsumed(taskSynData.getName());
+        // 存在监听者，提交到事件处理线程池
+        String partitionKey = taskSynData.getPartition() != null ? taskSynData.getPartition() : taskSynData.getKey();
+        dispatcher.dispatch(taskSynData.getName(), partitionKey, () -> invoke(fun, taskSynData));
+    }
+
+    /**
+     * 在当前线程上处理事件，异常向上抛出，供需要确认语义的 Streams 事件消费使用。
+     * 本节点未监听该事件时抛出 {@link RedisStreamConsumer.UnhandledException}，消息不确认，由监听该事件的节点认领
+     */
+    public void handle(TaskSynData<?> taskSynData) {
+        if(replyRegistry.complete(taskSynData)){
+            return;
+        }
+        Function<TaskSynData<?>,?> fun = LISTEN_QUEUE.get(taskSynData.getName());
+        if(fun == null){
+            throw new RedisStreamConsumer.UnhandledException();
+        }
+        metrics.eventConsumed(taskSynData.getName());
+        invoke(fun, taskSynData);
+    }
+
+    private void invoke(Function<TaskSynData<?>,?> fun, TaskSynData<?> taskSynData) {
+        long start = System.nanoTime();
+        boolean success = false;
+        Object obj;
+        try {
+            obj = fun.apply(taskSynData);
+            success = true;
+        } finally {
+            metrics.recordHandler(taskSynData.getName(), System.nanoTime() - start, success);
+        }
+        if(obj != null){
+            // 进行事件反发布
+            RedisService service = redisService;
+            if(service == null){
+                service = redisService = redisServiceProvider.getObject();
             }
+            service.reply(taskSynData,obj);
         }
     }
-}
\ No newline at end of file
+}
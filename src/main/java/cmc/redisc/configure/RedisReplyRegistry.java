@@ -0,0 +1,90 @@
+package cmc.redisc.configure;
+
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * 请求/应答关联表
+ * <p>
+ * 以关联标识登记等待中的请求，应答到达时由 {@link RedisReceiver} 直接完成对应的 future，
+ * 超时未应答的条目会被移除并以 {@link TimeoutException} 结束
+ */
+public class RedisReplyRegistry implements DisposableBean {
+
+    private final Map<String, CompletableFuture<TaskSynData<?>>> pending = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    public RedisReplyRegistry() {
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "redisc-reply-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 登记一个等待中的请求
+     *
+     * @param correlationId 关联标识
+     * @param timeout       超时时间
+     * @param unit          时间单位
+     * @return 应答到达或超时后结束的 future
+     */
+    public CompletableFuture<TaskSynData<?>> register(String correlationId, long timeout, TimeUnit unit) {
+        CompletableFuture<TaskSynData<?>> future = new CompletableFuture<>();
+        if (pending.putIfAbsent(correlationId, future) != null) {
+            throw new IllegalStateException("关联标识重复: " + correlationId);
+        }
+        ScheduledFuture<?> expiry = timer.schedule(
+                () -> future.completeExceptionally(new TimeoutException("等待应答超时: " + correlationId)), timeout, unit);
+        // 无论以何种方式结束都清理登记项
+        future.whenComplete((r, e) -> {
+            expiry.cancel(false);
+            pending.remove(correlationId, future);
+        });
+        return future;
+    }
+
+    /**
+     * 以应答完成对应的请求
+     *
+     * @return 存在等待中的请求返回true
+     */
+    public boolean complete(TaskSynData<?> reply) {
+        CompletableFuture<TaskSynData<?>> future = pending.get(reply.getName());
+        if (future == null) {
+            return false;
+        }
+        future.complete(reply);
+        return true;
+    }
+
+    /**
+     * 放弃等待
+     */
+    public void cancel(String correlationId) {
+        CompletableFuture<TaskSynData<?>> future = pending.get(correlationId);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 等待中的请求数
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+        for (CompletableFuture<TaskSynData<?>> future : pending.values()) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package cmc.redisc.configure;
+
+import cn.hutool.core.thread.ThreadUtil;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streams 消费组消费者
+ * <p>
+ * 每个读取线程是组内一个消费者，以 XREADGROUP 批量阻塞读取，处理成功的消息批量 XACK；
+ * 处理失败的消息留在待确认列表中，空闲超过 claimMinIdle 后由任意消费者 XCLAIM 重新处理（按页遍历整个待确认列表），
+ * 超过最大投递次数的消息确认后丢弃。处理函数抛出 {@link UnhandledException} 表示本节点不处理该消息，
+ * 消息同样留在待确认列表中等待其它节点认领
+ */
+@Slf4j
+public class RedisStreamConsumer {
+
+    private final RedisConnectionFactory connectionFactory;
+    private final String stream;
+    private final byte[] key;
+    private final String group;
+    private final String consumerPrefix;
+    private final StreamConsumerOptions options;
+    private final Consumer<TaskSynData<?>> handler;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public RedisStreamConsumer(RedisConnectionFactory connectionFactory, String stream, String group, String consumerPrefix,
+                               StreamConsumerOptions options, Consumer<TaskSynData<?>> handler) {
+        this.connectionFactory = connectionFactory;
+        this.stream = stream;
+        this.key = stream.getBytes(StandardCharsets.UTF_8);
+        this.group = group;
+        this.consumerPrefix = consumerPrefix;
+        this.options = options;
+        this.handler = handler;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < options.getConcurrency(); i++) {
+            String consumerName = consumerPrefix + "-" + i;
+            Thread thread = new Thread(() -> readLoop(consumerName), "redisc-stream-" + stream + "-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * 停止读取，等待当前批次处理并确认完毕
+     */
+    public synchronized void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join(options.getBlock().toMillis() + 5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        threads.clear();
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readLoop(String consumerName) {
+        org.springframework.data.redis.connection.stream.Consumer consumer =
+                org.springframework.data.redis.connection.stream.Consumer.from(group, consumerName);
+        StreamReadOptions readOptions = StreamReadOptions.empty().count(options.getBatchSize()).block(options.getBlock());
+        long claimIntervalMillis = options.getClaimInterval().toMillis();
+        long lastClaim = 0;
+        RedisConnection connection = null;
+        while (running) {
+            try {
+                if (connection == null) {
+                    connection = connectionFactory.getConnection();
+                }
+                RedisStreamCommands commands = connection.streamCommands();
+                if (System.currentTimeMillis() - lastClaim >= claimIntervalMillis) {
+                    lastClaim = System.currentTimeMillis();
+                    reclaim(commands, consumerName);
+                }
+                List<ByteRecord> records = commands.xReadGroup(consumer, readOptions,
+                        StreamOffset.create(key, ReadOffset.lastConsumed()));
+                process(commands, records);
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.error("Stream {} 读取失败", stream, e);
+                if (connection != null) {
+                    connection.close();
+                    connection = null;
+                }
+                ThreadUtil.sleep(1000);
+            }
+        }
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * 认领空闲过久的待确认消息（通常属于已下线的消费者）。
+     * 从上一页最后一条之后继续分页查询，直到遍历完整个待确认列表，排在前面的未到期消息不会挡住后面的消息
+     */
+    private void reclaim(RedisStreamCommands commands, String consumerName) {
+        long minIdle = options.getClaimMinIdle().toMillis();
+        Range<String> range = Range.unbounded();
+        while (running) {
+            PendingMessages pending = commands.xPending(key, group, range, (long) options.getBatchSize());
+            if (pending == null || pending.isEmpty()) {
+                return;
+            }
+            List<RecordId> claim = new ArrayList<>();
+            RecordId last = null;
+            for (PendingMessage message : pending) {
+                last = message.getId();
+                if (message.getElapsedTimeSinceLastDelivery().toMillis() < minIdle) {
+                    continue;
+                }
+                if (message.getTotalDeliveryCount() >= options.getMaxDeliveries()) {
+                    log.error("Stream {} 消息 {} 投递 {} 次仍未成功，丢弃", stream, message.getIdAsString(), message.getTotalDeliveryCount());
+                    commands.xAck(key, group, message.getId());
+                    continue;
+                }
+                claim.add(message.getId());
+            }
+            if (!claim.isEmpty()) {
+                process(commands, commands.xClaim(key, group, consumerName, options.getClaimMinIdle(),
+                        claim.toArray(new RecordId[0])));
+            }
+            if (pending.size() < options.getBatchSize()) {
+                return;
+            }
+            // 下一页从最后一条的下一个 id 开始，兼容不支持排他区间的 redis 版本
+            range = Range.rightUnbounded(Range.Bound.inclusive(last.getTimestamp() + "-" + (last.getSequence() + 1)));
+        }
+    }
+
+    private void process(RedisStreamCommands commands, List<ByteRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        List<RecordId> done = new ArrayList<>(records.size());
+        for (ByteRecord record : records) {
+            byte[] payload = RedisStreamQueue.payload(record);
+            if (payload == null) {
+                done.add(record.getId());
+                continue;
+            }
+            try {
+                handler.accept(JSON.parseObject(payload, TaskSynData.class));
+                done.add(record.getId());
+            } catch (UnhandledException e) {
+                log.debug("Stream {} 消息 {} 本节点不处理，等待其它节点认领", stream, record.getId());
+            } catch (Exception e) {
+                log.error("Stream {} 消息 {} 处理异常", stream, record.getId(), e);
+            }
+        }
+        if (!done.isEmpty()) {
+            commands.xAck(key, group, done.toArray(new RecordId[0]));
+        }
+    }
+
+    /**
+     * 本节点不处理该消息，不确认
+     */
+    public static class UnhandledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public UnhandledException() {
+            super(null, null, false, false);
+        }
+    }
+}
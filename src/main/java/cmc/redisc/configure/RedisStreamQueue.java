@@ -0,0 +1,209 @@
+package cmc.redisc.configure;
+
+import cmc.redisc.service.RedisService;
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Redis Streams 队列
+ * <p>
+ * 与 {@link RedisQueue} 的列表队列相比，消息在确认前不会丢失，节点重启期间写入的消息重启后仍可读取，
+ * 同一消费组内的多个节点分摊消费。开启 redisc.stream.events-enabled 后事件也改走 Streams：
+ * 每个事件使用独立的流 &lt;event-stream&gt;:&lt;事件名&gt;，节点在 on 监听该事件后才加入其消费组 redisc.stream.event-group，
+ * 每条事件只由一个监听该事件的节点处理，不再广播到每个节点。消费组在首个节点监听时创建，此前写入的事件不会投递，与 pub/sub 一致。
+ * 集群下各事件流槽位不同，每个监听的事件各自占用 concurrency 个读取线程与连接
+ */
+@Slf4j
+public class RedisStreamQueue implements DisposableBean {
+
+    private static final byte[] PAYLOAD_FIELD = "payload".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final RediscProperties properties;
+    private final RedisReceiver redisReceiver;
+
+    /**
+     * 已启动的消费者
+     */
+    private final List<RedisStreamConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 本节点监听的事件流消费者，键为事件名
+     */
+    private final Map<String, RedisStreamConsumer> eventConsumers = new ConcurrentHashMap<>();
+
+    public RedisStreamQueue(RedisTemplate<Object, Object> redisTemplate, RediscProperties properties, RedisReceiver redisReceiver) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.redisReceiver = redisReceiver;
+    }
+
+    /**
+     * 写入任务
+     *
+     * @param stream 流名
+     * @param args   任务数据
+     * @return 消息id
+     */
+    public RecordId add(final String stream, Object... args) {
+        TaskSynData<Object> taskSynData = new TaskSynData<>();
+        taskSynData.setName(stream);
+        RedisService.genParameter(taskSynData, args);
+        return addTask(stream, taskSynData);
+    }
+
+    /**
+     * 写入任务，按 redisc.stream.max-len 近似裁剪
+     */
+    public RecordId addTask(final String stream, TaskSynData<?> taskSynData) {
+        ByteRecord record = StreamRecords.rawBytes(Collections.singletonMap(PAYLOAD_FIELD, JSON.toJSONBytes(taskSynData)))
+                .withStreamKey(stream.getBytes(StandardCharsets.UTF_8));
+        long maxLen = properties.getStream().getMaxLen();
+        RedisStreamCommands.XAddOptions options = maxLen > 0
+                ? RedisStreamCommands.XAddOptions.maxlen(maxLen).approximateTrimming(true)
+                : RedisStreamCommands.XAddOptions.none();
+        return redisTemplate.execute((RedisCallback<RecordId>) connection -> connection.streamCommands().xAdd(record, options));
+    }
+
+    /**
+     * 以消费组订阅，使用 redisc.stream 默认参数
+     *
+     * @param stream  流名
+     * @param group   消费组，不存在时自动创建
+     * @param handler 任务处理函数，正常返回即确认
+     * @return 已启动的消费者
+     */
+    public RedisStreamConsumer subscribe(final String stream, final String group, Consumer<TaskSynData<?>> handler) {
+        return subscribe(stream, group, StreamConsumerOptions.of(properties.getStream()), handler);
+    }
+
+    /**
+     * 以消费组订阅
+     *
+     * @param stream  流名
+     * @param group   消费组，不存在时自动创建
+     * @param options 消费者参数
+     * @param handler 任务处理函数，正常返回即确认
+     * @return 已启动的消费者
+     */
+    public RedisStreamConsumer subscribe(final String stream, final String group, StreamConsumerOptions options,
+                                         Consumer<TaskSynData<?>> handler) {
+        createGroup(stream, group, ReadOffset.from("0"));
+        return start(stream, group, options, handler);
+    }
+
+    private RedisStreamConsumer start(String stream, String group, StreamConsumerOptions options, Consumer<TaskSynData<?>> handler) {
+        RedisStreamConsumer consumer = new RedisStreamConsumer(redisTemplate.getRequiredConnectionFactory(), stream, group,
+                properties.getNodeId(), options, handler);
+        consumers.add(consumer);
+        consumer.start();
+        return consumer;
+    }
+
+    /**
+     * 停止消费者
+     */
+    public void unsubscribe(RedisStreamConsumer consumer) {
+        consumers.remove(consumer);
+        consumer.stop();
+    }
+
+    /**
+     * 事件是否走 Streams
+     */
+    public boolean isEventsEnabled() {
+        return properties.getStream().isEventsEnabled();
+    }
+
+    /**
+     * 事件对应的流名
+     */
+    public String eventStreamOf(String name) {
+        return properties.getStream().getEventStream() + ":" + name;
+    }
+
+    /**
+     * 发布事件到该事件的流
+     */
+    public RecordId addEvent(TaskSynData<?> taskSynData) {
+        return addTask(eventStreamOf(taskSynData.getName()), taskSynData);
+    }
+
+    /**
+     * 加入事件流的消费组，开始消费该事件；消费组不存在时从最新位置创建
+     */
+    public void listenEvent(String name) {
+        eventConsumers.computeIfAbsent(name, n -> {
+            String stream = eventStreamOf(n);
+            String group = properties.getStream().getEventGroup();
+            createGroup(stream, group, ReadOffset.latest());
+            return start(stream, group, StreamConsumerOptions.of(properties.getStream()), redisReceiver::handle);
+        });
+    }
+
+    /**
+     * 停止消费事件流，未确认的事件留给其它监听该事件的节点认领
+     */
+    public void cancelEvent(String name) {
+        RedisStreamConsumer consumer = eventConsumers.remove(name);
+        if (consumer != null) {
+            unsubscribe(consumer);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (RedisStreamConsumer consumer : consumers) {
+            consumer.stop();
+        }
+        consumers.clear();
+        eventConsumers.clear();
+    }
+
+    private void createGroup(String stream, String group, ReadOffset offset) {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(stream.getBytes(StandardCharsets.UTF_8), group, offset, true));
+        } catch (RuntimeException e) {
+            // 消费组已存在
+            if (!isBusyGroup(e)) {
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isBusyGroup(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && t.getMessage().contains("BUSYGROUP")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static byte[] payload(ByteRecord record) {
+        for (Map.Entry<byte[], byte[]> entry : record.getValue().entrySet()) {
+            if (Arrays.equals(PAYLOAD_FIELD, entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+}
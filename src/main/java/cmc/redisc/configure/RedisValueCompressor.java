@@ -0,0 +1,223 @@
+package cmc.redisc.configure;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import net.jpountz.lz4.LZ4Factory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+
+/**
+ * 值压缩
+ * <p>
+ * 序列化结果达到 redisc.compression.threshold 字节后以 LZ4 或 zstd 压缩，首字节标识压缩方式，随后 4 字节为原始长度：
+ * {@link #LZ4_MAGIC}、{@link #ZSTD_MAGIC}、使用字典的 {@link #ZSTD_DICT_MAGIC}。
+ * 读取时按首字节判断，未压缩的值与压缩的值可以共存。lz4-java 与 zstd-jni 为可选依赖，只在使用时加载
+ */
+public class RedisValueCompressor {
+
+    public static final byte LZ4_MAGIC = 0x02;
+    public static final byte ZSTD_MAGIC = 0x03;
+    public static final byte ZSTD_DICT_MAGIC = 0x04;
+
+    private static final int HEADER_LENGTH = 5;
+
+    private final RediscProperties.Compression config;
+    private final RediscMetrics metrics;
+    private final Codec writeCodec;
+
+    /**
+     * 读取时按需创建，未使用的压缩方式不加载其依赖
+     */
+    private volatile Codec lz4;
+    private volatile Codec zstd;
+
+    public RedisValueCompressor(RediscProperties.Compression config, RediscMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.writeCodec = config.isEnabled() ? codecOf(config.getCodec() == RediscProperties.CompressionCodec.LZ4 ? LZ4_MAGIC : ZSTD_MAGIC) : null;
+    }
+
+    /**
+     * 首字节是否表示压缩值
+     */
+    public static boolean isCompressed(byte[] bytes) {
+        return bytes.length > HEADER_LENGTH
+                && (bytes[0] == LZ4_MAGIC || bytes[0] == ZSTD_MAGIC || bytes[0] == ZSTD_DICT_MAGIC);
+    }
+
+    /**
+     * 达到阈值且压缩后更小时返回压缩值，否则原样返回
+     */
+    public byte[] compress(byte[] raw) {
+        if (writeCodec == null || raw.length < config.getThreshold()) {
+            return raw;
+        }
+        long start = System.nanoTime();
+        byte[] compressed = writeCodec.compress(raw);
+        metrics.recordCompression(writeCodec.name(), "write", raw.length, compressed.length, System.nanoTime() - start);
+        return compressed.length < raw.length ? compressed : raw;
+    }
+
+    /**
+     * 解压，非压缩值原样返回
+     */
+    public byte[] decompress(byte[] bytes) {
+        if (!isCompressed(bytes)) {
+            return bytes;
+        }
+        Codec codec = codecOf(bytes[0]);
+        int length = ((bytes[1] & 0xff) << 24) | ((bytes[2] & 0xff) << 16) | ((bytes[3] & 0xff) << 8) | (bytes[4] & 0xff);
+        long start = System.nanoTime();
+        byte[] raw = codec.decompress(bytes, length);
+        metrics.recordCompression(codec.name(), "read", length, bytes.length, System.nanoTime() - start);
+        return raw;
+    }
+
+    /**
+     * 以样本训练 zstd 字典，结果保存为文件后通过 redisc.compression.dictionary 使用
+     *
+     * @param samples        典型的序列化值
+     * @param dictionarySize 字典大小，字节
+     */
+    public static byte[] trainDictionary(Collection<byte[]> samples, int dictionarySize) {
+        long total = 0;
+        for (byte[] sample : samples) {
+            total += sample.length;
+        }
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(Integer.MAX_VALUE, total), dictionarySize);
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+        return trainer.trainSamples();
+    }
+
+    private Codec codecOf(byte magic) {
+        try {
+            switch (magic) {
+                case LZ4_MAGIC:
+                    if (lz4 == null) {
+                        lz4 = new Lz4Codec();
+                    }
+                    return lz4;
+                case ZSTD_MAGIC:
+                case ZSTD_DICT_MAGIC:
+                    if (zstd == null) {
+                        zstd = new ZstdCodec(config.getLevel(), loadDictionary(config.getDictionary()));
+                    }
+                    return zstd;
+                default:
+                    throw new SerializationException("未知的压缩方式 " + magic);
+            }
+        } catch (NoClassDefFoundError e) {
+            throw new SerializationException(magic == LZ4_MAGIC ? "LZ4 压缩需要引入 org.lz4:lz4-java"
+                    : "zstd 压缩需要引入 com.github.luben:zstd-jni", e);
+        }
+    }
+
+    private static byte[] loadDictionary(String location) {
+        if (location == null || location.isEmpty()) {
+            return null;
+        }
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return StreamUtils.copyToByteArray(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法读取压缩字典 " + location, e);
+        }
+    }
+
+    private static byte[] withHeader(byte magic, int rawLength, byte[] body, int bodyLength) {
+        byte[] bytes = new byte[HEADER_LENGTH + bodyLength];
+        bytes[0] = magic;
+        bytes[1] = (byte) (rawLength >>> 24);
+        bytes[2] = (byte) (rawLength >>> 16);
+        bytes[3] = (byte) (rawLength >>> 8);
+        bytes[4] = (byte) rawLength;
+        System.arraycopy(body, 0, bytes, HEADER_LENGTH, bodyLength);
+        return bytes;
+    }
+
+    private interface Codec {
+        String name();
+
+        byte[] compress(byte[] raw);
+
+        byte[] decompress(byte[] bytes, int rawLength);
+    }
+
+    private static final class Lz4Codec implements Codec {
+        private final LZ4Factory factory = LZ4Factory.fastestInstance();
+
+        @Override
+        public String name() {
+            return "lz4";
+        }
+
+        @Override
+        public byte[] compress(byte[] raw) {
+            byte[] body = new byte[factory.fastCompressor().maxCompressedLength(raw.length)];
+            int length = factory.fastCompressor().compress(raw, 0, raw.length, body, 0, body.length);
+            return withHeader(LZ4_MAGIC, raw.length, body, length);
+        }
+
+        @Override
+        public byte[] decompress(byte[] bytes, int rawLength) {
+            byte[] raw = new byte[rawLength];
+            factory.fastDecompressor().decompress(bytes, HEADER_LENGTH, raw, 0, rawLength);
+            return raw;
+        }
+    }
+
+    private static final class ZstdCodec implements Codec {
+        private final int level;
+        private final ZstdDictCompress dictCompress;
+        private final ZstdDictDecompress dictDecompress;
+
+        private ZstdCodec(int level, byte[] dictionary) {
+            this.level = level;
+            this.dictCompress = dictionary == null ? null : new ZstdDictCompress(dictionary, level);
+            this.dictDecompress = dictionary == null ? null : new ZstdDictDecompress(dictionary);
+        }
+
+        @Override
+        public String name() {
+            return dictCompress == null ? "zstd" : "zstd-dict";
+        }
+
+        @Override
+        public byte[] compress(byte[] raw) {
+            if (dictCompress != null) {
+                byte[] body = Zstd.compress(raw, dictCompress);
+                return withHeader(ZSTD_DICT_MAGIC, raw.length, body, body.length);
+            }
+            byte[] body = Zstd.compress(raw, level);
+            return withHeader(ZSTD_MAGIC, raw.length, body, body.length);
+        }
+
+        @Override
+        public byte[] decompress(byte[] bytes, int rawLength) {
+            byte[] raw = new byte[rawLength];
+            long size;
+            if (bytes[0] == ZSTD_DICT_MAGIC) {
+                if (dictDecompress == null) {
+                    throw new SerializationException("值使用 zstd 字典压缩，但未配置 redisc.compression.dictionary");
+                }
+                size = Zstd.decompressFastDict(raw, 0, bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, dictDecompress);
+            } else {
+                size = Zstd.decompressByteArray(raw, 0, rawLength, bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+            }
+            if (Zstd.isError(size)) {
+                throw new SerializationException("zstd 解压失败: " + Zstd.getErrorName(size));
+            }
+            return raw;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package cmc.redisc.configure;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 热点 Hash 字段与计数器的延迟写入
+ * <p>
+ * 开启 redisc.write-behind.enabled 后，窗口内对同一字段的多次写入只保留最后的值，增量累加，
+ * 最迟 max-staleness 后以管道批量 HSET / HINCRBY / INCRBY 写入，关闭时写入剩余数据。
+ * 未开启时直接写入。窗口内先写值再加增量时，增量直接累加到整数值上，非整数值不能再加增量。
+ * 一批写入失败不影响其它批，失败的数据不会重试，计入 {@link #getFailed()}
+ */
+@Slf4j
+public class RedisWriteBehind implements DisposableBean {
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final RedisNearCache redisNearCache;
+    private final RediscProperties properties;
+    private final RediscProperties.WriteBehind config;
+    private final RediscMetrics metrics;
+
+    /**
+     * 写入方共享读锁，换缓冲时独占写锁
+     */
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<Field, Pending> buffer = new ConcurrentHashMap<>();
+
+    /**
+     * 写满 max-pending 后已提交的提前写入
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * 写入失败的批次中的字段数
+     */
+    private final LongAdder failed = new LongAdder();
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public RedisWriteBehind(RedisTemplate<Object, Object> redisTemplate, RedisNearCache redisNearCache,
+                            RediscProperties properties, RediscMetrics metrics) {
+        this.redisTemplate = redisTemplate;
+        this.redisNearCache = redisNearCache;
+        this.properties = properties;
+        this.config = properties.getWriteBehind();
+        this.metrics = metrics;
+        if (config.isEnabled()) {
+            this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "redisc-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, config.getMaxStaleness().toMillis());
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    /**
+     * 写入 Hash 字段，覆盖窗口内此前的写入与增量
+     */
+    public void hSet(String key, String hKey, Object value) {
+        Objects.requireNonNull(hKey);
+        if (!isEnabled()) {
+            redisTemplate.opsForHash().put(key, hKey, value);
+            redisNearCache.invalidate(key, hKey);
+            return;
+        }
+        update(new Field(key, hKey), pending -> {
+            pending.value = value;
+            pending.hasValue = true;
+            pending.delta = 0;
+        });
+    }
+
+    /**
+     * Hash 字段增量，窗口内已写入整数值时累加到该值上
+     *
+     * @throws IllegalArgumentException 窗口内已写入非整数值
+     */
+    public void hIncrBy(String key, String hKey, long delta) {
+        Objects.requireNonNull(hKey);
+        if (!isEnabled()) {
+            redisTemplate.opsForHash().increment(key, hKey, delta);
+            redisNearCache.invalidate(key, hKey);
+            return;
+        }
+        update(new Field(key, hKey), pending -> {
+            if (!pending.hasValue) {
+                pending.delta += delta;
+            } else if (isIntegral(pending.value)) {
+                // 写入的值经值序列化，不能再以 HINCRBY 累加
+                pending.value = add((Number) pending.value, delta);
+            } else {
+                throw new IllegalArgumentException("Hash " + key + " 字段 " + hKey + " 已写入非整数值，不能累加");
+            }
+        });
+    }
+
+    /**
+     * 计数器增量
+     */
+    public void incrBy(String key, long delta) {
+        if (!isEnabled()) {
+            redisTemplate.opsForValue().increment(key, delta);
+            redisNearCache.invalidate(key, null);
+            return;
+        }
+        update(new Field(key, null), pending -> pending.delta += delta);
+    }
+
+    /**
+     * 写入失败的批次中的字段数
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * 缓冲中的字段数
+     */
+    public int getPending() {
+        return buffer.size();
+    }
+
+    /**
+     * 立即写入缓冲中的数据
+     */
+    public void flush() {
+        Map<Field, Pending> drained;
+        swapLock.writeLock().lock();
+        try {
+            drained = buffer;
+            if (drained.isEmpty()) {
+                return;
+            }
+            buffer = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        long start = System.nanoTime();
+        try {
+            write(new ArrayList<>(drained.entrySet()));
+        } finally {
+            metrics.recordOperation("writeBehind.flush", System.nanoTime() - start);
+        }
+    }
+
+    private void update(Field field, Consumer<Pending> change) {
+        int size;
+        swapLock.readLock().lock();
+        try {
+            Map<Field, Pending> current = buffer;
+            Pending pending = current.computeIfAbsent(field, f -> new Pending());
+            synchronized (pending) {
+                change.accept(pending);
+            }
+            size = current.size();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        if (size >= config.getMaxPending() && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    private void write(List<Map.Entry<Field, Pending>> entries) {
+        int batchSize = Math.max(1, properties.getBulk().getBatchSize());
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            List<Map.Entry<Field, Pending>> chunk = entries.subList(from, Math.min(entries.size(), from + batchSize));
+            try {
+                writeChunk(chunk);
+            } catch (RuntimeException e) {
+                failed.add(chunk.size());
+                log.error("延迟写入 {} 个字段失败", chunk.size(), e);
+                continue;
+            }
+            if (redisNearCache.isEnabled()) {
+                List<Map.Entry<String, String>> fields = new ArrayList<>(chunk.size());
+                for (Map.Entry<Field, Pending> entry : chunk) {
+                    fields.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey().key, entry.getKey().hKey));
+                }
+                redisNearCache.invalidateFields(fields);
+            }
+        }
+    }
+
+    private void writeChunk(List<Map.Entry<Field, Pending>> chunk) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public Object execute(RedisOperations operations) {
+                for (Map.Entry<Field, Pending> entry : chunk) {
+                    Field field = entry.getKey();
+                    Pending pending = entry.getValue();
+                    // 换缓冲后旧缓冲不再有写入方
+                    if (field.hKey == null) {
+                        operations.opsForValue().increment(field.key, pending.delta);
+                        continue;
+                    }
+                    if (pending.hasValue) {
+                        operations.opsForHash().put(field.key, field.hKey, pending.value);
+                    } else if (pending.delta != 0) {
+                        operations.opsForHash().increment(field.key, field.hKey, pending.delta);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 累加，Long 保持为 Long，其余整数在 int 范围内时为 Integer
+     */
+    private static Number add(Number value, long delta) {
+        long sum = Math.addExact(value.longValue(), delta);
+        if (value instanceof Long || sum < Integer.MIN_VALUE || sum > Integer.MAX_VALUE) {
+            return sum;
+        }
+        return (int) sum;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("延迟写入失败", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushQuietly();
+        }
+    }
+
+    /**
+     * 字段，hKey 为null时表示计数器
+     */
+    private static final class Field {
+        private final String key;
+        private final String hKey;
+
+        private Field(String key, String hKey) {
+            this.key = key;
+            this.hKey = hKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Field)) {
+                return false;
+            }
+            Field field = (Field) o;
+            return key.equals(field.key) && Objects.equals(hKey, field.hKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + Objects.hashCode(hKey);
+        }
+    }
+
+    /**
+     * 窗口内合并后的写入：先写值，再加增量
+     */
+    private static final class Pending {
+        private Object value;
+        private boolean hasValue;
+        private long delta;
+    }
+}
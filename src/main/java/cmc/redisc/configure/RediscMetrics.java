@@ -0,0 +1,98 @@
+package cmc.redisc.configure;
+
+import java.util.function.LongSupplier;
+
+/**
+ * redisc 指标记录
+ * <p>
+ * 默认实现不做任何事；开启 redisc.metrics.enabled 且存在 Micrometer MeterRegistry 时使用 {@link MicrometerRediscMetrics}
+ */
+public interface RediscMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    RediscMetrics NOOP = new RediscMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * 是否记录指标，为 false 时调用方可以跳过计时
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * RedisService / RedisQueue 方法耗时
+     *
+     * @param operation 方法名
+     * @param nanos     耗时，纳秒
+     */
+    default void recordOperation(String operation, long nanos) {
+    }
+
+    /**
+     * 序列化后的数据大小
+     *
+     * @param direction write 或 read
+     * @param bytes     字节数
+     */
+    default void recordPayload(String direction, int bytes) {
+    }
+
+    /**
+     * 登记队列长度，抓取指标时读取
+     */
+    default void registerQueue(String queue, LongSupplier depth) {
+    }
+
+    /**
+     * 事件发布
+     */
+    default void eventPublished(String name) {
+    }
+
+    /**
+     * 事件收到
+     */
+    default void eventConsumed(String name) {
+    }
+
+    /**
+     * 监听函数耗时
+     *
+     * @param success 是否正常返回
+     */
+    default void recordHandler(String name, long nanos, boolean success) {
+    }
+
+    /**
+     * pur 等待应答超时
+     */
+    default void replyTimeout(String name) {
+    }
+
+    /**
+     * 值压缩或解压
+     *
+     * @param codec      压缩方式
+     * @param direction  write 为压缩，read 为解压
+     * @param rawBytes   原始字节数
+     * @param compressed 压缩后字节数
+     * @param nanos      耗时，纳秒
+     */
+    default void recordCompression(String codec, String direction, int rawBytes, int compressed, long nanos) {
+    }
+
+    /**
+     * 等待分布式锁的耗时
+     *
+     * @param acquired 是否取得锁
+     */
+    default void recordLockWait(long nanos, boolean acquired) {
+    }
+}
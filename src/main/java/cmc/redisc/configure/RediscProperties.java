@@ -0,0 +1,544 @@
+package cmc.redisc.configure;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * redisc 配置项，前缀 redisc
+ */
+@Data
+@ConfigurationProperties(prefix = "redisc")
+public class RediscProperties {
+
+    /**
+     * 当前节点标识，默认启动时随机生成
+     */
+    private String nodeId = UUID.randomUUID().toString().replace("-", "");
+
+    /**
+     * 本地一级缓存
+     */
+    private NearCache nearCache = new NearCache();
+
+    /**
+     * 请求/应答
+     */
+    private Reply reply = new Reply();
+
+    /**
+     * 批量操作
+     */
+    private Bulk bulk = new Bulk();
+
+    /**
+     * 队列消费者默认参数
+     */
+    private QueueConsumer consumer = new QueueConsumer();
+
+    /**
+     * Streams 队列
+     */
+    private Stream stream = new Stream();
+
+    /**
+     * 值序列化
+     */
+    private Serializer serializer = new Serializer();
+
+    /**
+     * 事件
+     */
+    private Event event = new Event();
+
+    /**
+     * 事件处理线程池
+     */
+    private Dispatch dispatch = new Dispatch();
+
+    /**
+     * SCAN 遍历
+     */
+    private Scan scan = new Scan();
+
+    /**
+     * Micrometer 指标
+     */
+    private Metrics metrics = new Metrics();
+
+    /**
+     * getOrLoad 防击穿加载
+     */
+    private Load load = new Load();
+
+    /**
+     * RedisQueue 异步入队的写合并
+     */
+    private Push push = new Push();
+
+    /**
+     * 热点 Hash 字段与计数器的延迟写入
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+
+    /**
+     * 延迟队列
+     */
+    private Delay delay = new Delay();
+
+    /**
+     * 分区队列
+     */
+    private Partition partition = new Partition();
+
+    /**
+     * 缓存读取路由
+     */
+    private Read read = new Read();
+
+    /**
+     * 值压缩
+     */
+    private Compression compression = new Compression();
+
+    /**
+     * 分布式锁
+     */
+    private Lock lock = new Lock();
+
+    @Data
+    public static class NearCache {
+        /**
+         * 是否开启本地一级缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 最大条目数，超出后按最近最少使用淘汰；淘汰在 16 个分段内各自进行，总数与顺序均为近似
+         */
+        private int maximumSize = 10000;
+
+        /**
+         * 条目存活时间
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+
+        /**
+         * 失效广播频道
+         */
+        private String channel = "redisc:near-cache";
+
+        /**
+         * 允许进入本地缓存的键前缀，为空表示全部
+         */
+        private List<String> prefixes = new ArrayList<>();
+    }
+
+    @Data
+    public static class Reply {
+        /**
+         * 等待应答的超时时间
+         */
+        private Duration timeout = Duration.ofSeconds(20);
+    }
+
+    @Data
+    public static class Bulk {
+        /**
+         * 单次往返的最大键数，超出后拆分为多批
+         */
+        private int batchSize = 500;
+
+        /**
+         * setCacheList / setCacheSet / setCacheMap 单条 RPUSH / SADD / HSET 的最大元素数
+         */
+        private int chunkSize = 1000;
+    }
+
+    @Data
+    public static class QueueConsumer {
+        /**
+         * 每个队列的处理线程数
+         */
+        private int concurrency = 1;
+
+        /**
+         * 本地预取缓冲大小，缓冲满时暂停拉取
+         */
+        private int prefetch = 64;
+
+        /**
+         * 队列为空时单次阻塞等待时间（BLPOP 超时）
+         */
+        private Duration pollTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 停止时等待已取出任务处理完毕的最长时间
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Stream {
+        /**
+         * 写入时按近似 MAXLEN 裁剪，0 表示不裁剪
+         */
+        private long maxLen = 100000;
+
+        /**
+         * 单次 XREADGROUP 读取条数
+         */
+        private int batchSize = 100;
+
+        /**
+         * XREADGROUP 阻塞等待时间
+         */
+        private Duration block = Duration.ofSeconds(2);
+
+        /**
+         * 每个节点的读取线程数，每个线程是组内一个消费者
+         */
+        private int concurrency = 1;
+
+        /**
+         * 待确认消息空闲超过该时间后被其它消费者认领
+         */
+        private Duration claimMinIdle = Duration.ofSeconds(60);
+
+        /**
+         * 检查待确认消息的间隔
+         */
+        private Duration claimInterval = Duration.ofSeconds(30);
+
+        /**
+         * 最大投递次数，超出后确认并丢弃
+         */
+        private int maxDeliveries = 16;
+
+        /**
+         * 事件（pu / pur 请求）改走 Streams，应答仍走 pub/sub。
+         * 开启后每条事件只由一个监听该事件的节点处理，不再广播；节点 on 监听后才加入该事件的消费组
+         */
+        private boolean eventsEnabled = false;
+
+        /**
+         * 事件流名前缀，每个事件使用独立的流 &lt;前缀&gt;:&lt;事件名&gt;
+         */
+        private String eventStream = "onDoor:stream";
+
+        /**
+         * 事件消费组，监听同一事件的节点共用，组内每条事件只由一个节点处理
+         */
+        private String eventGroup = "redisc";
+    }
+
+    @Data
+    public static class Serializer {
+        /**
+         * 以 JSONB 紧凑二进制格式写入，读取时自动识别 JSON 与 JSONB
+         */
+        private boolean binary = false;
+
+        /**
+         * JSONB 类型表，以序号代替完整类名，各节点必须一致
+         */
+        private List<String> types = new ArrayList<>();
+
+        /**
+         * JSONB 读取时允许还原的类名或包前缀，types 中的类已包含在内；其余非 JDK 基础类型读为 JSONObject
+         */
+        private List<String> accept = new ArrayList<>();
+    }
+
+    @Data
+    public static class Event {
+        /**
+         * 所有事件走共享频道 onDoor（旧版行为），关闭时每个事件使用独立频道 onDoor:&lt;name&gt;，
+         * 集群内各节点必须一致
+         */
+        private boolean legacyChannel = false;
+    }
+
+    @Data
+    public static class Dispatch {
+        /**
+         * 未单独配置的事件共用的线程池
+         */
+        private Executor defaults = new Executor();
+
+        /**
+         * 按事件名单独配置的线程池
+         */
+        private Map<String, Executor> events = new HashMap<>();
+    }
+
+    @Data
+    public static class Executor {
+        /**
+         * 处理线程数
+         */
+        private int threads = 4;
+
+        /**
+         * 等待队列容量
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * 同一分区键（未设置时为 key）的事件按到达顺序串行处理
+         */
+        private boolean ordered = false;
+
+        /**
+         * 线程池饱和时的处理方式；有序处理时 CALLER_RUNS 改为阻塞接收线程直到通道有空位
+         */
+        private RejectPolicy rejectPolicy = RejectPolicy.CALLER_RUNS;
+    }
+
+    public enum RejectPolicy {
+        /**
+         * 拒绝并记录错误
+         */
+        REJECT,
+        /**
+         * 在接收线程上直接执行
+         */
+        CALLER_RUNS,
+        /**
+         * 丢弃并计数
+         */
+        DROP
+    }
+
+    @Data
+    public static class Scan {
+        /**
+         * SCAN 每次迭代的 COUNT
+         */
+        private int count = 1000;
+
+        /**
+         * 按模式删除时每批 UNLINK 的键数
+         */
+        private int deleteBatchSize = 500;
+
+        /**
+         * 分页读取 List 时每页的元素数
+         */
+        private int pageSize = 500;
+    }
+
+    @Data
+    public static class Metrics {
+        /**
+         * 是否记录指标，需要 micrometer-core 与 MeterRegistry
+         */
+        private boolean enabled = false;
+
+        /**
+         * 耗时与数据大小是否发布百分位直方图
+         */
+        private boolean histogram = true;
+    }
+
+    @Data
+    public static class Load {
+        /**
+         * 逻辑过期后继续返回旧值并后台刷新的时间，为0时过期即删除
+         */
+        private Duration staleTtl = Duration.ofSeconds(30);
+
+        /**
+         * XFetch 提前刷新系数，越大越早刷新，为0时不提前刷新
+         */
+        private double beta = 1.0;
+
+        /**
+         * 节点间加载锁的持有时间，也是等待其它节点加载的最长时间
+         */
+        private Duration lockTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 等待其它节点加载时读取 redis 的间隔
+         */
+        private Duration waitInterval = Duration.ofMillis(50);
+
+        /**
+         * 后台刷新线程数
+         */
+        private int refreshThreads = 2;
+
+        /**
+         * 后台刷新排队上限，超出后丢弃，下次读取时再触发
+         */
+        private int refreshQueueCapacity = 1000;
+    }
+
+    @Data
+    public static class Push {
+        /**
+         * 单条 RPUSH 最多合并的值数，攒满立即写入
+         */
+        private int maxBatch = 256;
+
+        /**
+         * 首个值最多等待的时间，到期后不论多少都写入
+         */
+        private Duration maxDelay = Duration.ofMillis(2);
+
+        /**
+         * 写入线程数
+         */
+        private int flushThreads = 2;
+    }
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * 是否开启，未开启时直接写入
+         */
+        private boolean enabled = false;
+
+        /**
+         * 缓冲数据最长的未写入时间
+         */
+        private Duration maxStaleness = Duration.ofMillis(100);
+
+        /**
+         * 缓冲的字段数达到后提前写入
+         */
+        private int maxPending = 10000;
+    }
+
+    @Data
+    public static class Delay {
+        /**
+         * 每次脚本最多移动的到期任务数
+         */
+        private int batchSize = 100;
+
+        /**
+         * 搬运线程最长的等待时间，决定其它节点写入的任务最迟多久被发现
+         */
+        private Duration maxIdle = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Partition {
+        /**
+         * 默认分区数
+         */
+        private int partitions = 8;
+
+        /**
+         * 按队列名单独指定的分区数
+         */
+        private Map<String, Integer> queues = new HashMap<>();
+    }
+
+    @Data
+    public static class Read {
+        /**
+         * 可容忍延迟的读取发往哪个节点
+         */
+        private ReadMode mode = ReadMode.MASTER;
+
+        /**
+         * 静态主从的从节点 host:port，主节点为 spring.redis.host / port
+         */
+        private List<String> replicas = new ArrayList<>();
+    }
+
+    /**
+     * 读取路由模式
+     */
+    public enum ReadMode {
+        /**
+         * 全部读主节点
+         */
+        MASTER,
+        /**
+         * 优先读从节点，没有可用从节点时读主节点
+         */
+        REPLICA_PREFERRED,
+        /**
+         * 只读从节点
+         */
+        REPLICA,
+        /**
+         * 读延迟最低的节点
+         */
+        NEAREST
+    }
+
+    @Data
+    public static class Compression {
+        /**
+         * 是否压缩写入的值，不影响读取
+         */
+        private boolean enabled = false;
+
+        /**
+         * 压缩方式，LZ4 速度优先，ZSTD 压缩率优先
+         */
+        private CompressionCodec codec = CompressionCodec.LZ4;
+
+        /**
+         * 序列化结果达到该字节数才压缩
+         */
+        private int threshold = 4096;
+
+        /**
+         * zstd 压缩级别
+         */
+        private int level = 3;
+
+        /**
+         * zstd 字典位置，如 classpath:redisc.dict，各节点必须一致；配置后 zstd 使用字典压缩
+         */
+        private String dictionary;
+    }
+
+    /**
+     * 压缩方式
+     */
+    public enum CompressionCodec {
+        /**
+         * lz4-java
+         */
+        LZ4,
+        /**
+         * zstd-jni，可使用训练好的字典
+         */
+        ZSTD
+    }
+
+    @Data
+    public static class Lock {
+        /**
+         * 未指定租期时的租期，持有期间看门狗每 1/3 租期续期一次
+         */
+        private Duration leaseTime = Duration.ofSeconds(30);
+
+        /**
+         * 锁键前缀，锁键为 前缀{锁名}，防护计数为 前缀{锁名}:fence
+         */
+        private String keyPrefix = "lock:";
+
+        /**
+         * 释放通知频道
+         */
+        private String channel = "redisc:lock:released";
+
+        /**
+         * 看门狗线程数
+         */
+        private int watchdogThreads = 1;
+    }
+}
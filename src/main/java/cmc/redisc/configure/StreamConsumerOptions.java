@@ -0,0 +1,53 @@
+package cmc.redisc.configure;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Streams 消费者参数
+ */
+@Data
+public class StreamConsumerOptions {
+
+    /**
+     * 单次读取条数
+     */
+    private int batchSize;
+
+    /**
+     * 读取阻塞等待时间
+     */
+    private Duration block;
+
+    /**
+     * 读取线程数
+     */
+    private int concurrency;
+
+    /**
+     * 待确认消息被认领前的最小空闲时间
+     */
+    private Duration claimMinIdle;
+
+    /**
+     * 检查待确认消息的间隔
+     */
+    private Duration claimInterval;
+
+    /**
+     * 最大投递次数
+     */
+    private int maxDeliveries;
+
+    public static StreamConsumerOptions of(RediscProperties.Stream defaults) {
+        StreamConsumerOptions options = new StreamConsumerOptions();
+        options.setBatchSize(defaults.getBatchSize());
+        options.setBlock(defaults.getBlock());
+        options.setConcurrency(defaults.getConcurrency());
+        options.setClaimMinIdle(defaults.getClaimMinIdle());
+        options.setClaimInterval(defaults.getClaimInterval());
+        options.setMaxDeliveries(defaults.getMaxDeliveries());
+        return options;
+    }
+}
@@ -1,18 +1,28 @@
 package cmc.redisc.configure;
 
-import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.fastjson2.JSONFactory;
+import com.alibaba.fastjson2.reader.ObjectReader;
+import com.alibaba.fastjson2.util.TypeUtils;
 import lombok.Data;
 
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Data
 public class TaskSynData<T> implements Serializable {
     private static final long serialVersionUID = -1681130765215741845L;
 
+    /**
+     * 按目标类型缓存的转换器，将已解码的 Map 直接转为对象，不再序列化后重新解析
+     */
+    private static final Map<Class<?>, ObjectReader<?>> READERS = new ConcurrentHashMap<>();
+
     /**
      * 唯一标识
      */
@@ -28,6 +38,16 @@ public class TaskSynData<T> implements Serializable {
      */
     private String type;
 
+    /**
+     * 分区键，有序处理时同一分区键串行执行，为空时使用 key
+     */
+    private String partition;
+
+    /**
+     * 应答频道，请求方节点的收件箱，为空时应答广播到 key 对应的事件频道
+     */
+    private String replyTo;
+
     /**
      * 任务数据
      */
@@ -38,9 +58,9 @@ public class TaskSynData<T> implements Serializable {
      */
     public <V> V get(Class<V> tClass){
         if(data instanceof Map && ((Map<?,?>)data).containsKey(tClass.getName())){
-                return JSONObject.parseObject(JSONObject.toJSONString(((Map<?,?>)data).get(tClass.getName())),tClass);
+                return convert(((Map<?,?>)data).get(tClass.getName()),tClass);
         }
-        return JSONObject.parseObject(JSONObject.toJSONString(data),tClass);
+        return convert(data,tClass);
     }
     public T get(){
         return data;
@@ -50,14 +70,14 @@ public class TaskSynData<T> implements Serializable {
      * 获取单个数据
      */
     public T first(Class<T> tClass){
-        return JSONObject.parseObject(JSONObject.toJSONString(data),tClass);
+        return convert(data,tClass);
     }
     /**
      * 获取指定数据
      */
     public <V> V get(String name, Class<V> tClass){
         if(data instanceof Map){
-            return JSONObject.parseObject(JSONObject.toJSONString(((Map<?, ?>) data).get(name)),tClass);
+            return convert(((Map<?, ?>) data).get(name),tClass);
         }
         return null;
     }
@@ -67,8 +87,33 @@ public class TaskSynData<T> implements Serializable {
      */
     public <V> List<V> toList(Class<V> vClass){
         if(data instanceof List){
-            return ((List<?>) data).stream().map(e-> JSONObject.parseObject(JSONObject.toJSONString(e),vClass)).collect(Collectors.toList());
+            return ((List<?>) data).stream().map(e-> convert(e,vClass)).collect(Collectors.toList());
         }
         throw new RuntimeException("数据类型错误，无法转化为List");
     }
-}
\ No newline at end of file
+
+    /**
+     * 解析任务，数据一次性直接解码为指定类型
+     */
+    public static <V> TaskSynData<V> parse(String json, Class<V> vClass){
+        return JSON.parseObject(json, new TypeReference<TaskSynData<V>>(vClass){}.getType());
+    }
+
+    /**
+     * 将已解码的数据转为指定类型
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> V convert(Object value, Class<V> vClass){
+        if(value == null){
+            return null;
+        }
+        if(vClass.isInstance(value)){
+            return (V) value;
+        }
+        if(value instanceof Map && vClass != String.class && !Map.class.isAssignableFrom(vClass)){
+            ObjectReader<?> reader = READERS.computeIfAbsent(vClass, c -> JSONFactory.getDefaultObjectReaderProvider().getObjectReader(c));
+            return (V) reader.createInstance((Map<?, ?>) value, 0L);
+        }
+        return TypeUtils.cast(value, vClass);
+    }
+}
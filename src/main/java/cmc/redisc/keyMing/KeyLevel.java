@@ -0,0 +1,72 @@
+package cmc.redisc.keyMing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 键层级，自上而下：省市区、社区、网格、楼栋、单元、楼层、房屋
+ * <p>
+ * 键段名沿用 {@link RedisKey} 中的常量，已写入的键不受影响
+ *
+ * @author zym
+ */
+public enum KeyLevel {
+
+    DIVISION(RedisKey.DIVISION, RedisKey.SYS_DIVISION),
+
+    PARK(RedisKey.PARK, RedisKey.SYS_PARK),
+
+    GRID(RedisKey.GRID, null),
+
+    BUILDING(RedisKey.BUILDING, RedisKey.SYS_BUILDING),
+
+    UNIT(RedisKey.UNIT, null),
+
+    FLOOR(RedisKey.FLOOR, null),
+
+    HOUSE(RedisKey.HOUSE, RedisKey.SYS_HOUSE);
+
+    private final String segment;
+
+    /**
+     * 键段名加分隔符的字节，拼接键时直接复制
+     */
+    private final byte[] prefix;
+
+    private final String sysKey;
+
+    KeyLevel(String segment, String sysKey) {
+        this.segment = segment;
+        this.prefix = (segment + ":").getBytes(StandardCharsets.UTF_8);
+        this.sysKey = sysKey;
+    }
+
+    /**
+     * 键段名
+     */
+    public String getSegment() {
+        return segment;
+    }
+
+    /**
+     * 以 id 为字段保存该层级基本信息的 Hash 键，如 sys:park，没有时为 null
+     */
+    public String getSysKey() {
+        return sysKey;
+    }
+
+    byte[] prefix() {
+        return prefix;
+    }
+
+    /**
+     * 按键段名查找层级
+     */
+    public static KeyLevel ofSegment(String segment) {
+        for (KeyLevel level : values()) {
+            if (level.segment.equals(segment)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("未知的键段 " + segment);
+    }
+}
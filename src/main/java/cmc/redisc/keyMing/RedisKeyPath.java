@@ -0,0 +1,177 @@
+package cmc.redisc.keyMing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 层级键，如 park:P1:builDing:B2:unit:U3
+ * <p>
+ * 每一级持有上一级的引用，键的字节在创建时由上一级的字节拼接，字符串在首次使用时生成并缓存，同一路径反复使用不再分配。
+ * 该键对应的 Hash 以下一级的 id 为字段、下一级的数据为值，{@link RedisKeyTree} 据此逐级加载
+ *
+ * @author zym
+ */
+public final class RedisKeyPath {
+
+    private static final byte SEPARATOR = ':';
+
+    private final RedisKeyPath parent;
+    private final KeyLevel level;
+    private final String id;
+
+    private final byte[] bytes;
+
+    /**
+     * 缓存，并发时可能重复计算，结果相同
+     */
+    private String key;
+
+    private RedisKeyPath(RedisKeyPath parent, KeyLevel level, String id) {
+        if (id == null || id.isEmpty() || id.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("键 id 不能为空且不能包含 ':' ：" + id);
+        }
+        if (parent != null && level.ordinal() <= parent.level.ordinal()) {
+            throw new IllegalArgumentException(level + " 不能位于 " + parent.level + " 之下");
+        }
+        this.parent = parent;
+        this.level = level;
+        this.id = id;
+        this.bytes = concat(parent, level, id);
+    }
+
+    /**
+     * 顶层路径
+     */
+    public static RedisKeyPath of(KeyLevel level, String id) {
+        return new RedisKeyPath(null, level, id);
+    }
+
+    public static RedisKeyPath division(String id) {
+        return of(KeyLevel.DIVISION, id);
+    }
+
+    public static RedisKeyPath park(String id) {
+        return of(KeyLevel.PARK, id);
+    }
+
+    /**
+     * 解析已有的键
+     */
+    public static RedisKeyPath parse(String key) {
+        String[] parts = key.split(":");
+        if (parts.length < 2 || parts.length % 2 != 0) {
+            throw new IllegalArgumentException("不是层级键：" + key);
+        }
+        RedisKeyPath path = null;
+        for (int i = 0; i < parts.length; i += 2) {
+            path = new RedisKeyPath(path, KeyLevel.ofSegment(parts[i]), parts[i + 1]);
+        }
+        return path;
+    }
+
+    /**
+     * 下级路径，可以跳过中间层级，如社区下直接是楼栋
+     */
+    public RedisKeyPath child(KeyLevel level, String id) {
+        return new RedisKeyPath(this, level, id);
+    }
+
+    public RedisKeyPath grid(String id) {
+        return child(KeyLevel.GRID, id);
+    }
+
+    public RedisKeyPath building(String id) {
+        return child(KeyLevel.BUILDING, id);
+    }
+
+    public RedisKeyPath unit(String id) {
+        return child(KeyLevel.UNIT, id);
+    }
+
+    public RedisKeyPath floor(String id) {
+        return child(KeyLevel.FLOOR, id);
+    }
+
+    public RedisKeyPath house(String id) {
+        return child(KeyLevel.HOUSE, id);
+    }
+
+    /**
+     * 上级路径，顶层为 null
+     */
+    public RedisKeyPath getParent() {
+        return parent;
+    }
+
+    /**
+     * 指定层级的上级路径，包括自身，不存在时为 null
+     */
+    public RedisKeyPath ancestor(KeyLevel level) {
+        RedisKeyPath path = this;
+        while (path != null && path.level != level) {
+            path = path.parent;
+        }
+        return path;
+    }
+
+    public KeyLevel getLevel() {
+        return level;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * 键
+     */
+    public String key() {
+        String k = key;
+        if (k == null) {
+            key = k = new String(rawKey(), StandardCharsets.UTF_8);
+        }
+        return k;
+    }
+
+    /**
+     * 键的 UTF-8 字节，返回缓存的数组，调用方不能修改
+     */
+    public byte[] rawKey() {
+        return bytes;
+    }
+
+    private static byte[] concat(RedisKeyPath parent, KeyLevel level, String id) {
+        byte[] prefix = level.prefix();
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int offset = 0;
+        byte[] b;
+        if (parent == null) {
+            b = new byte[prefix.length + idBytes.length];
+        } else {
+            b = new byte[parent.bytes.length + 1 + prefix.length + idBytes.length];
+            System.arraycopy(parent.bytes, 0, b, 0, parent.bytes.length);
+            offset = parent.bytes.length;
+            b[offset++] = SEPARATOR;
+        }
+        System.arraycopy(prefix, 0, b, offset, prefix.length);
+        System.arraycopy(idBytes, 0, b, offset + prefix.length, idBytes.length);
+        return b;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof RedisKeyPath && key().equals(((RedisKeyPath) o).key());
+    }
+
+    @Override
+    public int hashCode() {
+        return key().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
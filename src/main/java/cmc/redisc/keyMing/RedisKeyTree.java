@@ -0,0 +1,226 @@
+package cmc.redisc.keyMing;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 一次加载到内存的层级数据，如一个社区下的全部楼栋、单元、楼层、房屋
+ * <p>
+ * 每一级一次管道往返：读取上一级各路径的 Hash（HGETALL），字段为下级 id，值为下级数据。
+ * 加载后按键、层级查找，父子关系直接引用，不再逐个 getCacheMapValue
+ *
+ * @author zym
+ */
+public class RedisKeyTree {
+
+    private final Node root;
+
+    private final Map<String, Node> index = new HashMap<>();
+
+    private final Map<KeyLevel, List<Node>> levels = new EnumMap<>(KeyLevel.class);
+
+    private RedisKeyTree(RedisKeyPath rootPath, Object rootValue) {
+        this.root = add(null, rootPath, rootValue);
+    }
+
+    /**
+     * 加载层级数据
+     *
+     * @param template  读取使用的模板，值按其 Hash 序列化方式解码
+     * @param rootPath  根路径，根的数据取自对应层级的 sys 键，如 sys:park
+     * @param batchSize 每次管道发送的命令数
+     * @param levels    依次加载的下级层级，如 BUILDING, UNIT, FLOOR, HOUSE
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static RedisKeyTree load(RedisTemplate template, RedisKeyPath rootPath, int batchSize, KeyLevel... levels) {
+        KeyLevel last = rootPath.getLevel();
+        for (KeyLevel level : levels) {
+            if (level.ordinal() <= last.ordinal()) {
+                throw new IllegalArgumentException(level + " 不能位于 " + last + " 之下");
+            }
+            last = level;
+        }
+        String sysKey = rootPath.getLevel().getSysKey();
+        List<Object> first = template.executePipelined((RedisCallback<Object>) connection -> {
+            if (sysKey != null) {
+                connection.hashCommands().hGet(sysKey.getBytes(StandardCharsets.UTF_8), rootPath.getId().getBytes(StandardCharsets.UTF_8));
+            }
+            if (levels.length > 0) {
+                connection.hashCommands().hGetAll(rootPath.rawKey());
+            }
+            return null;
+        });
+        RedisKeyTree tree = new RedisKeyTree(rootPath, sysKey != null ? first.get(0) : null);
+        if (levels.length == 0) {
+            return tree;
+        }
+        List<Node> parents = Collections.singletonList(tree.root);
+        List<Object> entries = first.subList(sysKey != null ? 1 : 0, first.size());
+        int size = Math.max(1, batchSize);
+        for (int i = 0; i < levels.length; i++) {
+            List<Node> children = new ArrayList<>();
+            for (int j = 0; j < parents.size(); j++) {
+                Node parent = parents.get(j);
+                Map<Object, Object> hash = (Map<Object, Object>) entries.get(j);
+                if (hash == null) {
+                    continue;
+                }
+                for (Map.Entry<Object, Object> entry : hash.entrySet()) {
+                    children.add(tree.add(parent, parent.path.child(levels[i], String.valueOf(entry.getKey())), entry.getValue()));
+                }
+            }
+            if (i + 1 == levels.length || children.isEmpty()) {
+                break;
+            }
+            entries = new ArrayList<>(children.size());
+            for (int from = 0; from < children.size(); from += size) {
+                List<Node> chunk = children.subList(from, Math.min(children.size(), from + size));
+                entries.addAll(template.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Node child : chunk) {
+                        connection.hashCommands().hGetAll(child.path.rawKey());
+                    }
+                    return null;
+                }));
+            }
+            parents = children;
+        }
+        return tree;
+    }
+
+    private Node add(Node parent, RedisKeyPath path, Object value) {
+        Node node = new Node(parent, path, value);
+        if (parent != null) {
+            parent.children.put(path.getId(), node);
+        }
+        index.put(path.key(), node);
+        levels.computeIfAbsent(path.getLevel(), k -> new ArrayList<>()).add(node);
+        return node;
+    }
+
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * 按路径查找，未加载时为 null
+     */
+    public Node get(RedisKeyPath path) {
+        return index.get(path.key());
+    }
+
+    /**
+     * 按键查找，未加载时为 null
+     */
+    public Node get(String key) {
+        return index.get(key);
+    }
+
+    /**
+     * 某一层级的全部节点，按加载顺序
+     */
+    public List<Node> nodes(KeyLevel level) {
+        List<Node> nodes = levels.get(level);
+        return nodes == null ? Collections.emptyList() : Collections.unmodifiableList(nodes);
+    }
+
+    /**
+     * 某一层级的全部数据
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> values(KeyLevel level) {
+        List<Node> nodes = nodes(level);
+        List<T> values = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            values.add((T) node.value);
+        }
+        return values;
+    }
+
+    /**
+     * 节点数，包括根
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * 树节点
+     */
+    public static final class Node {
+        private final Node parent;
+        private final RedisKeyPath path;
+        private final Object value;
+        private final Map<String, Node> children = new LinkedHashMap<>();
+
+        private Node(Node parent, RedisKeyPath path, Object value) {
+            this.parent = parent;
+            this.path = path;
+            this.value = value;
+        }
+
+        public RedisKeyPath getPath() {
+            return path;
+        }
+
+        public KeyLevel getLevel() {
+            return path.getLevel();
+        }
+
+        public String getId() {
+            return path.getId();
+        }
+
+        /**
+         * 节点数据，根节点取自 sys 键，没有时为 null
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T getValue() {
+            return (T) value;
+        }
+
+        public Node getParent() {
+            return parent;
+        }
+
+        /**
+         * 指定层级的上级节点，包括自身，不存在时为 null
+         */
+        public Node ancestor(KeyLevel level) {
+            Node node = this;
+            while (node != null && node.getLevel() != level) {
+                node = node.parent;
+            }
+            return node;
+        }
+
+        public Collection<Node> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        public Node getChild(String id) {
+            return children.get(id);
+        }
+
+        /**
+         * 指定层级的下级节点
+         */
+        public List<Node> descendants(KeyLevel level) {
+            List<Node> result = new ArrayList<>();
+            collect(this, level, result);
+            return result;
+        }
+
+        private static void collect(Node node, KeyLevel level, List<Node> result) {
+            for (Node child : node.children.values()) {
+                if (child.getLevel() == level) {
+                    result.add(child);
+                } else if (child.getLevel().ordinal() < level.ordinal()) {
+                    collect(child, level, result);
+                }
+            }
+        }
+    }
+}
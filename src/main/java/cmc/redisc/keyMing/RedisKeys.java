@@ -0,0 +1,41 @@
+package cmc.redisc.keyMing;
+
+/**
+ * 集群槽位相关的键工具
+ */
+public final class RedisKeys {
+
+    private RedisKeys() {
+    }
+
+    /**
+     * 生成与原键同一槽位的派生键。
+     * 原键带非空 hash tag 时直接追加后缀；否则整个键参与槽位计算，将其整体作为 tag 包一层再追加后缀
+     *
+     * @param key    原键
+     * @param suffix 后缀
+     * @return 与原键同槽位的键
+     * @throws IllegalArgumentException 原键为空，或没有非空 hash tag 却含有 '}'
+     */
+    public static String sameSlot(String key, String suffix) {
+        if (hasHashTag(key)) {
+            return key + suffix;
+        }
+        if (key.isEmpty() || key.indexOf('}') >= 0) {
+            throw new IllegalArgumentException("无法生成与键 [" + key + "] 同槽位的键");
+        }
+        return "{" + key + "}" + suffix;
+    }
+
+    /**
+     * 按 redis 规则判断键是否带有非空 hash tag：第一个 '{' 之后的第一个 '}' 之间至少有一个字符
+     */
+    public static boolean hasHashTag(String key) {
+        int start = key.indexOf('{');
+        if (start < 0) {
+            return false;
+        }
+        int end = key.indexOf('}', start + 1);
+        return end > start + 1;
+    }
+}
@@ -1,19 +1,39 @@
 package cmc.redisc.service;
 
-import cn.hutool.core.thread.ThreadUtil;
+import cmc.redisc.configure.RedisCacheLoader;
+import cmc.redisc.configure.RediscMetrics;
+import cmc.redisc.configure.RediscProperties;
+import cmc.redisc.configure.RedisEventChannels;
+import cmc.redisc.configure.RedisLock;
+import cmc.redisc.configure.RedisLockManager;
+import cmc.redisc.configure.RedisNearCache;
+import cmc.redisc.configure.RedisReadRouting;
 import cmc.redisc.configure.RedisReceiver;
+import cmc.redisc.configure.RedisReplyRegistry;
+import cmc.redisc.configure.RedisStreamQueue;
+import cmc.redisc.configure.RedisWriteBehind;
 import cmc.redisc.configure.TaskSynData;
-import org.springframework.data.redis.core.BoundSetOperations;
-import org.springframework.data.redis.core.HashOperations;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import cmc.redisc.keyMing.KeyLevel;
+import cmc.redisc.keyMing.RedisKeyPath;
+import cmc.redisc.keyMing.RedisKeyTree;
+import cmc.redisc.keyMing.RedisKeys;
+import cn.hutool.core.collection.CollUtil;
+import org.springframework.data.redis.core.*;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * spring redis 工具类
@@ -28,6 +48,36 @@ public class RedisService {
     @Resource
     public RedisTemplate redisTemplate;
 
+    @Resource
+    private RedisNearCache redisNearCache;
+
+    @Resource
+    private RedisReplyRegistry redisReplyRegistry;
+
+    @Resource
+    private RediscProperties rediscProperties;
+
+    @Resource
+    private RedisStreamQueue redisStreamQueue;
+
+    @Resource
+    private RedisEventChannels redisEventChannels;
+
+    @Resource
+    private RediscMetrics rediscMetrics;
+
+    @Resource
+    private RedisCacheLoader redisCacheLoader;
+
+    @Resource
+    private RedisWriteBehind redisWriteBehind;
+
+    @Resource
+    private RedisReadRouting redisReadRouting;
+
+    @Resource
+    private RedisLockManager redisLockManager;
+
     /**
      * 缓存基本的对象，Integer、String、实体类等
      *
@@ -35,7 +85,10 @@ public class RedisService {
      * @param value 缓存的值
      */
     public <T> void setCacheObject(final String key, final T value) {
-        redisTemplate.opsForValue().set(key, value);
+        timed("setCacheObject", () -> {
+            redisTemplate.opsForValue().set(key, value);
+            redisNearCache.invalidate(key, null);
+        });
     }
 
     /**
@@ -47,7 +100,10 @@ public class RedisService {
      * @param timeUnit 时间颗粒度
      */
     public <T> void setCacheObject(final String key, final T value, final Long timeout, final TimeUnit timeUnit) {
-        redisTemplate.opsForValue().set(key, value, timeout, timeUnit);
+        timed("setCacheObject", () -> {
+            redisTemplate.opsForValue().set(key, value, timeout, timeUnit);
+            redisNearCache.invalidate(key, null);
+        });
     }
 
     /**
@@ -70,7 +126,7 @@ public class RedisService {
      * @return true=设置成功；false=设置失败
      */
     public boolean expire(final String key, final long timeout, final TimeUnit unit) {
-        return redisTemplate.expire(key, timeout, unit);
+        return timed("expire", () -> redisTemplate.expire(key, timeout, unit));
     }
 
     /**
@@ -90,7 +146,7 @@ public class RedisService {
      * @return true 存在 false不存在
      */
     public Boolean hasKey(String key) {
-        return redisTemplate.hasKey(key);
+        return timed("hasKey", () -> readTemplate().hasKey(key));
     }
 
     /**
@@ -100,8 +156,87 @@ public class RedisService {
      * @return 缓存键值对应的数据
      */
     public <T> T getCacheObject(final String key) {
-        ValueOperations<String, T> operation = redisTemplate.opsForValue();
-        return operation.get(key);
+        return timed("getCacheObject", () -> {
+            RedisTemplate template = readTemplate();
+            ValueOperations<String, T> operation = template.opsForValue();
+            if (!redisNearCache.isCacheable(key)) {
+                return operation.get(key);
+            }
+            if (!isMasterForced(template)) {
+                Object cached = redisNearCache.get(key, null);
+                if (cached != null) {
+                    return (T) cached;
+                }
+            }
+            long stamp = redisNearCache.stamp(key);
+            T value = operation.get(key);
+            redisNearCache.put(key, null, value, stamp);
+            return value;
+        });
+    }
+
+    /**
+     * 读取缓存，不存在时加载并写入；并发的加载在节点内与节点间都只执行一次，
+     * 临近过期时后台提前刷新，过期后的 redisc.load.stale-ttl 内先返回旧值。
+     * 值以 {@link cmc.redisc.configure.CacheEnvelope} 保存，需始终通过本方法读取
+     *
+     * @param key    缓存键值
+     * @param loader 加载函数，返回null时不缓存
+     * @param ttl    有效时间
+     * @param unit   时间颗粒度
+     * @return 缓存或加载的值
+     */
+    public <T> T getOrLoad(final String key, final Supplier<T> loader, final long ttl, final TimeUnit unit) {
+        return timed("getOrLoad", () -> redisCacheLoader.getOrLoad(key, loader, ttl, unit));
+    }
+
+    /**
+     * 在主节点上执行读取，开启 redisc.read 时用于写后立即读等不能容忍复制延迟的场景
+     *
+     * @param reads 读取逻辑
+     * @return 读取结果
+     */
+    public <T> T onMaster(final Supplier<T> reads) {
+        return redisReadRouting.onMaster(reads);
+    }
+
+    /**
+     * 加锁，一直等待直到取得；租期由看门狗续期，需在 finally 中 unlock 或使用 try-with-resources
+     *
+     * @param name 锁名
+     * @return 取得的锁
+     */
+    public RedisLock lock(final String name) {
+        RedisLock lock = redisLockManager.tryLock(name, Long.MAX_VALUE, 0, TimeUnit.MILLISECONDS);
+        if (lock == null) {
+            throw new IllegalStateException("等待redis锁 " + name + " 时线程被中断");
+        }
+        return lock;
+    }
+
+    /**
+     * 尝试加锁，租期由看门狗续期
+     *
+     * @param name     锁名
+     * @param waitTime 最长等待时间，0 表示只尝试一次
+     * @param unit     时间单位
+     * @return 取得的锁，超时为null
+     */
+    public RedisLock tryLock(final String name, final long waitTime, final TimeUnit unit) {
+        return redisLockManager.tryLock(name, waitTime, 0, unit);
+    }
+
+    /**
+     * 尝试加锁，固定租期，到期后锁自动释放
+     *
+     * @param name      锁名
+     * @param waitTime  最长等待时间，0 表示只尝试一次
+     * @param leaseTime 租期
+     * @param unit      时间单位
+     * @return 取得的锁，超时为null
+     */
+    public RedisLock tryLock(final String name, final long waitTime, final long leaseTime, final TimeUnit unit) {
+        return redisLockManager.tryLock(name, waitTime, leaseTime, unit);
     }
 
     /**
@@ -110,7 +245,11 @@ public class RedisService {
      * @param key
      */
     public boolean deleteObject(final String key) {
-        return redisTemplate.delete(key);
+        return timed("deleteObject", () -> {
+            boolean deleted = redisTemplate.delete(key);
+            redisNearCache.invalidate(key, null);
+            return deleted;
+        });
     }
 
     /**
@@ -120,7 +259,17 @@ public class RedisService {
      * @return
      */
     public long deleteObject(final Collection collection) {
-        return redisTemplate.delete(collection);
+        return timed("deleteObject", () -> {
+            long count = redisTemplate.delete(collection);
+            if (redisNearCache.isEnabled()) {
+                List<String> keys = new ArrayList<>(collection.size());
+                for (Object key : collection) {
+                    keys.add(String.valueOf(key));
+                }
+                redisNearCache.invalidateAll(keys);
+            }
+            return count;
+        });
     }
 
     /**
@@ -131,8 +280,27 @@ public class RedisService {
      * @return 缓存的对象
      */
     public <T> long setCacheList(final String key, final List<T> dataList) {
-        Long count = redisTemplate.opsForList().rightPushAll(key, dataList);
-        return count == null ? 0 : count;
+        return setCacheList(key, dataList, false, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 缓存List数据，按 redisc.bulk.chunk-size 拆分为多条 RPUSH，经同一管道发送
+     *
+     * @param key      缓存的键值
+     * @param dataList 待缓存的List数据
+     * @param replace  是否整体替换，先写入临时键再 RENAME
+     * @param timeout  有效时间，不大于0时不设置
+     * @param unit     时间颗粒度
+     * @return 写入后list的长度
+     */
+    public <T> long setCacheList(final String key, final List<T> dataList, final boolean replace,
+                                 final long timeout, final TimeUnit unit) {
+        return timed("setCacheList", () -> {
+            List<Object> results = writeChunks(key, dataList, replace, timeout, unit,
+                    (operations, target, chunk) -> operations.opsForList().rightPushAll(target, chunk));
+            Long count = lastOf(results, Long.class);
+            return count == null ? 0 : count;
+        });
     }
 
     /**
@@ -142,7 +310,50 @@ public class RedisService {
      * @return 缓存键值对应的数据
      */
     public <T> List<T> getCacheList(final String key) {
-        return redisTemplate.opsForList().range(key, 0, -1);
+        return timed("getCacheList", () -> readTemplate().opsForList().range(key, 0, -1));
+    }
+
+    /**
+     * 分页遍历缓存的list，每页一次 LRANGE
+     *
+     * @param key 缓存的键值
+     * @return 按需加载的迭代器
+     */
+    public <T> Iterator<T> getCacheListIterator(final String key) {
+        return getCacheListIterator(key, rediscProperties.getScan().getPageSize());
+    }
+
+    /**
+     * 分页遍历缓存的list，每页一次 LRANGE；遍历期间 list 被修改时可能重复或遗漏元素
+     *
+     * @param key      缓存的键值
+     * @param pageSize 每页元素数
+     * @return 按需加载的迭代器
+     */
+    public <T> Iterator<T> getCacheListIterator(final String key, final int pageSize) {
+        return new ListPageIterator<>(key, pageSize);
+    }
+
+    /**
+     * 分页遍历缓存的list
+     *
+     * @param key      缓存的键值
+     * @param pageSize 每页元素数
+     * @return 按需加载的流
+     */
+    public <T> Stream<T> getCacheListStream(final String key, final int pageSize) {
+        Iterator<T> iterator = getCacheListIterator(key, pageSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+    }
+
+    /**
+     * 分页遍历缓存的list
+     *
+     * @param key 缓存的键值
+     * @return 按需加载的流
+     */
+    public <T> Stream<T> getCacheListStream(final String key) {
+        return getCacheListStream(key, rediscProperties.getScan().getPageSize());
     }
 
     /**
@@ -153,12 +364,26 @@ public class RedisService {
      * @return 缓存数据的对象
      */
     public <T> BoundSetOperations<String, T> setCacheSet(final String key, final Set<T> dataSet) {
-        BoundSetOperations<String, T> setOperation = redisTemplate.boundSetOps(key);
-        Iterator<T> it = dataSet.iterator();
-        while (it.hasNext()) {
-            setOperation.add(it.next());
-        }
-        return setOperation;
+        return setCacheSet(key, dataSet, false, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 缓存Set，按 redisc.bulk.chunk-size 拆分为多条 SADD，经同一管道发送
+     *
+     * @param key     缓存键值
+     * @param dataSet 缓存的数据
+     * @param replace 是否整体替换，先写入临时键再 RENAME
+     * @param timeout 有效时间，不大于0时不设置
+     * @param unit    时间颗粒度
+     * @return 缓存数据的对象
+     */
+    public <T> BoundSetOperations<String, T> setCacheSet(final String key, final Set<T> dataSet, final boolean replace,
+                                                         final long timeout, final TimeUnit unit) {
+        return timed("setCacheSet", () -> {
+            writeChunks(key, dataSet, replace, timeout, unit,
+                    (operations, target, chunk) -> operations.opsForSet().add(target, chunk.toArray()));
+            return redisTemplate.boundSetOps(key);
+        });
     }
 
     /**
@@ -168,7 +393,29 @@ public class RedisService {
      * @return
      */
     public <T> Set<T> getCacheSet(final String key) {
-        return redisTemplate.opsForSet().members(key);
+        return timed("getCacheSet", () -> readTemplate().opsForSet().members(key));
+    }
+
+    /**
+     * 以 SSCAN 遍历缓存的set，使用完毕需关闭
+     *
+     * @param key   缓存键值
+     * @param count 每次迭代的 COUNT
+     * @return 元素游标，同一个元素可能出现多次
+     */
+    public <T> Cursor<T> getCacheSetCursor(final String key, final int count) {
+        return readTemplate().opsForSet().scan(key, ScanOptions.scanOptions().count(count).build());
+    }
+
+    /**
+     * 以 SSCAN 遍历缓存的set，使用完毕需关闭
+     *
+     * @param key 缓存键值
+     * @return 元素的流，同一个元素可能出现多次
+     */
+    public <T> Stream<T> getCacheSetStream(final String key) {
+        Cursor<T> cursor = getCacheSetCursor(key, rediscProperties.getScan().getCount());
+        return cursor.stream();
     }
 
     /**
@@ -178,9 +425,32 @@ public class RedisService {
      * @param dataMap
      */
     public <T> void setCacheMap(final String key, final Map<String, T> dataMap) {
-        if (dataMap != null) {
-            redisTemplate.opsForHash().putAll(key, dataMap);
-        }
+        setCacheMap(key, dataMap, false, 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 缓存Map，按 redisc.bulk.chunk-size 拆分为多条 HSET，经同一管道发送
+     *
+     * @param key     缓存键值
+     * @param dataMap 缓存的数据
+     * @param replace 是否整体替换，先写入临时键再 RENAME
+     * @param timeout 有效时间，不大于0时不设置
+     * @param unit    时间颗粒度
+     */
+    public <T> void setCacheMap(final String key, final Map<String, T> dataMap, final boolean replace,
+                                final long timeout, final TimeUnit unit) {
+        timed("setCacheMap", () -> {
+            if (dataMap != null) {
+                writeChunks(key, dataMap.entrySet(), replace, timeout, unit, (operations, target, chunk) -> {
+                    Map<String, T> batch = new LinkedHashMap<>(chunk.size() * 2);
+                    for (Map.Entry<String, T> entry : chunk) {
+                        batch.put(entry.getKey(), entry.getValue());
+                    }
+                    operations.opsForHash().putAll(target, batch);
+                });
+                redisNearCache.invalidate(key, null);
+            }
+        });
     }
 
     /**
@@ -190,7 +460,7 @@ public class RedisService {
      * @param hKey
      */
     public Boolean CacheMapHasKey(final String key, final String hKey) {
-        return redisTemplate.opsForHash().hasKey(key, hKey);
+        return readTemplate().opsForHash().hasKey(key, hKey);
     }
 
     /**
@@ -200,7 +470,29 @@ public class RedisService {
      * @return
      */
     public <T> Map<String, T> getCacheMap(final String key) {
-        return redisTemplate.opsForHash().entries(key);
+        return timed("getCacheMap", () -> readTemplate().opsForHash().entries(key));
+    }
+
+    /**
+     * 以 HSCAN 遍历缓存的Map，使用完毕需关闭
+     *
+     * @param key   Redis键
+     * @param count 每次迭代的 COUNT
+     * @return 键值对游标，同一个键可能出现多次
+     */
+    public <T> Cursor<Map.Entry<String, T>> getCacheMapCursor(final String key, final int count) {
+        return readTemplate().opsForHash().scan(key, ScanOptions.scanOptions().count(count).build());
+    }
+
+    /**
+     * 以 HSCAN 遍历缓存的Map，使用完毕需关闭
+     *
+     * @param key Redis键
+     * @return 键值对的流，同一个键可能出现多次
+     */
+    public <T> Stream<Map.Entry<String, T>> getCacheMapStream(final String key) {
+        Cursor<Map.Entry<String, T>> cursor = getCacheMapCursor(key, rediscProperties.getScan().getCount());
+        return cursor.stream();
     }
 
     /**
@@ -211,7 +503,32 @@ public class RedisService {
      * @param value 值
      */
     public <T> void setCacheMapValue(final String key, final String hKey, final T value) {
-        redisTemplate.opsForHash().put(key, hKey, value);
+        timed("setCacheMapValue", () -> {
+            redisTemplate.opsForHash().put(key, hKey, value);
+            redisNearCache.invalidate(key, hKey);
+        });
+    }
+
+    /**
+     * 往Hash中存入数据，开启 redisc.write-behind 时延迟合并写入，最多滞后 max-staleness
+     *
+     * @param key   Redis键
+     * @param hKey  Hash键
+     * @param value 值
+     */
+    public <T> void setCacheMapValueDeferred(final String key, final String hKey, final T value) {
+        redisWriteBehind.hSet(key, hKey, value);
+    }
+
+    /**
+     * Hash字段递增，开启 redisc.write-behind 时窗口内的增量累加后写入
+     *
+     * @param key   Redis键
+     * @param hKey  Hash键
+     * @param delta 增量
+     */
+    public void incrCacheMapValueDeferred(final String key, final String hKey, final long delta) {
+        redisWriteBehind.hIncrBy(key, hKey, delta);
     }
 
     /**
@@ -221,7 +538,10 @@ public class RedisService {
      * @param hKey Hash键
      */
     public void deleteCacheMapKey(final String key, final String hKey) {
-        redisTemplate.opsForHash().delete(key, hKey);
+        timed("deleteCacheMapKey", () -> {
+            redisTemplate.opsForHash().delete(key, hKey);
+            redisNearCache.invalidate(key, hKey);
+        });
     }
 
     /**
@@ -232,8 +552,23 @@ public class RedisService {
      * @return Hash中的对象
      */
     public <T> T getCacheMapValue(final String key, final String hKey) {
-        HashOperations<String, String, T> opsForHash = redisTemplate.opsForHash();
-        return opsForHash.get(key, hKey);
+        return timed("getCacheMapValue", () -> {
+            RedisTemplate template = readTemplate();
+            HashOperations<String, String, T> opsForHash = template.opsForHash();
+            if (!redisNearCache.isCacheable(key)) {
+                return opsForHash.get(key, hKey);
+            }
+            if (!isMasterForced(template)) {
+                Object cached = redisNearCache.get(key, hKey);
+                if (cached != null) {
+                    return (T) cached;
+                }
+            }
+            long stamp = redisNearCache.stamp(key);
+            T value = opsForHash.get(key, hKey);
+            redisNearCache.put(key, hKey, value, stamp);
+            return value;
+        });
     }
 
     /**
@@ -244,7 +579,142 @@ public class RedisService {
      * @return Hash对象集合
      */
     public <T> List<T> getMultiCacheMapValue(final String key, final Collection<Object> hKeys) {
-        return redisTemplate.opsForHash().multiGet(key, hKeys);
+        return timed("getMultiCacheMapValue", () -> readTemplate().opsForHash().multiGet(key, hKeys));
+    }
+
+    /**
+     * 加载层级数据，每一级一次管道往返
+     *
+     * @param root   根路径，如 RedisKeyPath.park(parkId)
+     * @param levels 依次加载的下级层级，如 BUILDING, UNIT, FLOOR, HOUSE
+     * @return 按键、层级索引的内存树
+     */
+    public RedisKeyTree getCacheTree(final RedisKeyPath root, final KeyLevel... levels) {
+        return timed("getCacheTree", () -> RedisKeyTree.load(readTemplate(), root, rediscProperties.getBulk().getBatchSize(), levels));
+    }
+
+    /**
+     * 批量获取缓存对象（MGET）
+     *
+     * @param keys 缓存键值集合
+     * @return 与键顺序一致的数据，不存在的键对应null
+     */
+    public <T> List<T> getMultiCacheObject(final Collection<String> keys) {
+        return timed("getMultiCacheObject", () -> {
+            List<T> result = new ArrayList<>(keys.size());
+            for (List<String> chunk : partition(keys)) {
+                List<T> values = readTemplate().opsForValue().multiGet(chunk);
+                if (values == null) {
+                    values = Collections.nCopies(chunk.size(), null);
+                }
+                result.addAll(values);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 批量缓存对象（MSET）
+     *
+     * @param dataMap 键值对
+     */
+    public <T> void setMultiCacheObject(final Map<String, T> dataMap) {
+        timed("setMultiCacheObject", () -> {
+            for (List<Map.Entry<String, T>> chunk : partition(dataMap.entrySet())) {
+                Map<String, T> batch = new LinkedHashMap<>(chunk.size() * 2);
+                for (Map.Entry<String, T> entry : chunk) {
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+                redisTemplate.opsForValue().multiSet(batch);
+            }
+            redisNearCache.invalidateAll(dataMap.keySet());
+        });
+    }
+
+    /**
+     * 批量缓存对象，统一的有效时间
+     *
+     * @param dataMap  键值对
+     * @param timeout  时间
+     * @param timeUnit 时间颗粒度
+     */
+    public <T> void setMultiCacheObject(final Map<String, T> dataMap, final long timeout, final TimeUnit timeUnit) {
+        Map<String, Long> timeouts = new HashMap<>(dataMap.size() * 2);
+        for (String key : dataMap.keySet()) {
+            timeouts.put(key, timeout);
+        }
+        setMultiCacheObject(dataMap, timeouts, timeUnit);
+    }
+
+    /**
+     * 批量缓存对象，每个键单独的有效时间，每批一次管道往返
+     *
+     * @param dataMap  键值对
+     * @param timeouts 键对应的有效时间，未给出的键不过期
+     * @param timeUnit 时间颗粒度
+     */
+    public <T> void setMultiCacheObject(final Map<String, T> dataMap, final Map<String, Long> timeouts, final TimeUnit timeUnit) {
+        timed("setMultiCacheObject", () -> {
+            for (List<Map.Entry<String, T>> chunk : partition(dataMap.entrySet())) {
+                redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    public Object execute(RedisOperations operations) {
+                        ValueOperations valueOperations = operations.opsForValue();
+                        for (Map.Entry<String, T> entry : chunk) {
+                            Long timeout = timeouts.get(entry.getKey());
+                            if (timeout == null) {
+                                valueOperations.set(entry.getKey(), entry.getValue());
+                            } else {
+                                valueOperations.set(entry.getKey(), entry.getValue(), timeout, timeUnit);
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            redisNearCache.invalidateAll(dataMap.keySet());
+        });
+    }
+
+    /**
+     * 批量设置有效时间
+     *
+     * @param keys    Redis键集合
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 与键顺序一致的结果，true=设置成功；false=设置失败
+     */
+    public List<Boolean> expire(final Collection<String> keys, final long timeout, final TimeUnit unit) {
+        return pipelineEach(keys, (operations, key) -> operations.expire(key, timeout, unit));
+    }
+
+    /**
+     * 批量判断 key是否存在
+     *
+     * @param keys 键集合
+     * @return 与键顺序一致的结果，true 存在 false不存在
+     */
+    public List<Boolean> hasKeys(final Collection<String> keys) {
+        return pipelineEach(keys, RedisOperations::hasKey);
+    }
+
+    /**
+     * 获取多个Hash中的数据，每批一次管道往返
+     *
+     * @param hashKeys Redis键到Hash键集合的映射
+     * @return 与入参顺序一致的Redis键到Hash对象集合的映射
+     */
+    public <T> Map<String, List<T>> getMultiCacheMapValue(final Map<String, ? extends Collection<String>> hashKeys) {
+        return timed("getMultiCacheMapValue", () -> {
+            Map<String, List<T>> result = new LinkedHashMap<>(hashKeys.size() * 2);
+            List<String> keys = new ArrayList<>(hashKeys.keySet());
+            List<List<T>> values = pipelineEach(keys,
+                    (operations, key) -> operations.opsForHash().multiGet(key, new ArrayList<Object>(hashKeys.get(key))));
+            for (int i = 0; i < keys.size(); i++) {
+                result.put(keys.get(i), values.get(i));
+            }
+            return result;
+        });
     }
 
     /**
@@ -255,20 +725,110 @@ public class RedisService {
      * @return
      */
     public long incr(String key, long delta) {
-        if (delta <= 0) {
-            throw new RuntimeException("递增因子必须大于0");
-        }
-        return redisTemplate.opsForValue().increment(key, delta);
+        return timed("incr", () -> {
+            if (delta <= 0) {
+                throw new RuntimeException("递增因子必须大于0");
+            }
+            long value = redisTemplate.opsForValue().increment(key, delta);
+            redisNearCache.invalidate(key, null);
+            return value;
+        });
+    }
+
+    /**
+     * 递增，开启 redisc.write-behind 时窗口内的增量累加后写入，不返回递增后的值
+     *
+     * @param key   键
+     * @param delta 增量
+     */
+    public void incrDeferred(final String key, final long delta) {
+        redisWriteBehind.incrBy(key, delta);
     }
 
     /**
-     * 获得缓存的基本对象列表
+     * 获得缓存的基本对象列表，以 SCAN 遍历，不阻塞 redis
      *
      * @param pattern 字符串前缀
      * @return 对象列表
      */
     public Collection<String> keys(final String pattern) {
-        return redisTemplate.keys(pattern);
+        return timed("keys", () -> {
+            // SCAN 可能重复返回同一个键
+            Set<String> keys = new LinkedHashSet<>();
+            try (Cursor<String> cursor = scanCursor(pattern, rediscProperties.getScan().getCount())) {
+                cursor.forEachRemaining(keys::add);
+            }
+            return keys;
+        });
+    }
+
+    /**
+     * 以 SCAN 游标遍历匹配的键，使用完毕需关闭
+     *
+     * @param pattern 匹配模式
+     * @return 键的流，同一个键可能出现多次
+     */
+    public Stream<String> scan(final String pattern) {
+        return scan(pattern, rediscProperties.getScan().getCount());
+    }
+
+    /**
+     * 以 SCAN 游标遍历匹配的键，使用完毕需关闭
+     *
+     * @param pattern 匹配模式
+     * @param count   每次迭代的 COUNT
+     * @return 键的流，同一个键可能出现多次
+     */
+    public Stream<String> scan(final String pattern, final int count) {
+        return scanCursor(pattern, count).stream();
+    }
+
+    /**
+     * 以 SCAN 游标遍历匹配的键，使用完毕需关闭
+     *
+     * @param pattern 匹配模式
+     * @param count   每次迭代的 COUNT
+     * @return 键的游标
+     */
+    public Cursor<String> scanCursor(final String pattern, final int count) {
+        return redisTemplate.scan(ScanOptions.scanOptions().match(pattern).count(count).build());
+    }
+
+    /**
+     * 按模式删除，边遍历边批量 UNLINK
+     *
+     * @param pattern 匹配模式
+     * @return 删除的键数
+     */
+    public long deleteByPattern(final String pattern) {
+        return deleteByPattern(pattern, null);
+    }
+
+    /**
+     * 按模式删除，边遍历边批量 UNLINK
+     *
+     * @param pattern  匹配模式
+     * @param progress 每批删除后回调累计删除数，可为null
+     * @return 删除的键数
+     */
+    public long deleteByPattern(final String pattern, final LongConsumer progress) {
+        return timed("deleteByPattern", () -> {
+            int batchSize = rediscProperties.getScan().getDeleteBatchSize();
+            long deleted = 0;
+            List<String> batch = new ArrayList<>(batchSize);
+            try (Cursor<String> cursor = scanCursor(pattern, rediscProperties.getScan().getCount())) {
+                while (cursor.hasNext()) {
+                    batch.add(cursor.next());
+                    if (batch.size() >= batchSize) {
+                        deleted += unlink(batch, progress, deleted);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                deleted += unlink(batch, progress, deleted);
+            }
+            return deleted;
+        });
     }
 
     /**
@@ -282,49 +842,107 @@ public class RedisService {
      * @return
      */
     public <T> boolean setIfAbsent(final String key, final T value, final Long timeout, final TimeUnit timeUnit) {
-        return redisTemplate.opsForValue().setIfAbsent(key, value, timeout, timeUnit);
+        return timed("setIfAbsent", () -> {
+            boolean success = redisTemplate.opsForValue().setIfAbsent(key, value, timeout, timeUnit);
+            if (success) {
+                redisNearCache.invalidate(key, null);
+            }
+            return success;
+        });
     }
 
 
     /**
-     * 事件发布
+     * 事件发布，默认广播到所有监听该事件的节点；
+     * 开启 redisc.stream.events-enabled 后只由其中一个监听该事件的节点处理
      */
     public void pu(String name, Object... args) {
         TaskSynData taskSynData = new TaskSynData();
         taskSynData.setName(name);
         genParameter(taskSynData, args);
-        redisTemplate.convertAndSend("onDoor", taskSynData);
+        publish(taskSynData);
     }
 
+    /**
+     * 事件发布，监听方开启有序处理时同一分区键的事件按顺序执行
+     *
+     * @param name      事件名
+     * @param partition 分区键
+     */
+    public void puPartition(String name, String partition, Object... args) {
+        TaskSynData taskSynData = new TaskSynData();
+        taskSynData.setName(name);
+        taskSynData.setPartition(partition);
+        genParameter(taskSynData, args);
+        publish(taskSynData);
+    }
 
     /**
-     * 事件发布有返回值的方法
+     * 发布应答，应答始终走 pub/sub，发往请求方节点的收件箱
+     *
+     * @param request 请求事件
+     * @param result  处理结果
+     */
+    public void reply(TaskSynData<?> request, Object result) {
+        TaskSynData taskSynData = new TaskSynData();
+        taskSynData.setName(request.getKey());
+        genParameter(taskSynData, new Object[]{result});
+        String channel = request.getReplyTo() != null ? request.getReplyTo() : redisEventChannels.channelOf(taskSynData.getName());
+        redisTemplate.convertAndSend(channel, taskSynData);
+    }
+
+
+    /**
+     * 事件发布有返回值的方法，最多等待 redisc.reply.timeout
      */
     public Optional<TaskSynData<?>> pur(String name, Object map) {
-        String returnName = name + "_return_" + UUID.randomUUID();
-        AtomicReference<TaskSynData<?>> result = new AtomicReference<>();
-        // 先提前订阅
-        this.on(returnName, e -> {
-            // e是这次订阅返回的数据
-            result.set(e);
-            return null;
+        return timed("pur", () -> {
+            try {
+                return Optional.ofNullable(purAsync(name, map).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            } catch (ExecutionException | CancellationException e) {
+                // 超时或发送失败
+                return Optional.empty();
+            }
         });
+    }
+
+    /**
+     * 事件发布有返回值的方法，异步等待应答
+     */
+    public CompletableFuture<TaskSynData<?>> purAsync(String name, Object map) {
+        return purAsync(name, map, rediscProperties.getReply().getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 事件发布有返回值的方法，异步等待应答
+     *
+     * @param timeout 超时时间，超时后 future 以 TimeoutException 结束
+     * @param unit    时间单位
+     */
+    public CompletableFuture<TaskSynData<?>> purAsync(String name, Object map, long timeout, TimeUnit unit) {
+        String returnName = name + "_return_" + UUID.randomUUID();
+        // 先登记再发送，避免应答先于登记到达
+        CompletableFuture<TaskSynData<?>> future = redisReplyRegistry.register(returnName, timeout, unit);
         TaskSynData taskSynData = new TaskSynData();
         taskSynData.setKey(returnName);
+        taskSynData.setReplyTo(redisEventChannels.inbox());
         taskSynData.setName(name);
         taskSynData.setData(map);
-        // 发送事件
-        redisTemplate.convertAndSend("onDoor", taskSynData);
-        int i = 0;
-        // 获取返回值 最多等待20秒钟
-        while (result.get() == null && i < 200) {
-            // 暂停100毫秒
-            ThreadUtil.sleep(100);
-            i++;
+        try {
+            // 发送事件
+            publish(taskSynData);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
         }
-        // 无论是否获取到数据都取消订阅
-        cancel(returnName);
-        return Optional.ofNullable(result.get());
+        future.whenComplete((reply, e) -> {
+            if (e instanceof TimeoutException) {
+                rediscMetrics.replyTimeout(name);
+            }
+        });
+        return future;
     }
 
     /**
@@ -332,15 +950,183 @@ public class RedisService {
      */
     public void on(String name, Function<TaskSynData<?>, ?> fun) {
         RedisReceiver.LISTEN_QUEUE.put(name, fun);
+        redisEventChannels.subscribe(name);
+        if (redisStreamQueue.isEventsEnabled()) {
+            redisStreamQueue.listenEvent(name);
+        }
     }
 
     /**
      * 取消订阅
      */
     public void cancel(String name) {
+        if (redisStreamQueue.isEventsEnabled()) {
+            redisStreamQueue.cancelEvent(name);
+        }
         RedisReceiver.LISTEN_QUEUE.remove(name);
+        redisEventChannels.unsubscribe(name);
+    }
+
+
+    /**
+     * 发送事件，开启 redisc.stream.events-enabled 时写入事件流
+     */
+    private void publish(TaskSynData taskSynData) {
+        rediscMetrics.eventPublished(taskSynData.getName());
+        if (redisStreamQueue.isEventsEnabled()) {
+            redisStreamQueue.addEvent(taskSynData);
+        } else {
+            redisTemplate.convertAndSend(redisEventChannels.channelOf(taskSynData.getName()), taskSynData);
+        }
+    }
+
+    /**
+     * 读取使用的模板，开启 redisc.read 时可容忍延迟的读取发往从节点
+     */
+    private RedisTemplate readTemplate() {
+        return redisReadRouting.template();
+    }
+
+    /**
+     * 开启读写分离时处于 onMaster 内。从节点读取的值也会回填本地缓存，复制延迟期间可能是旧值，
+     * 此时跳过本地条目直接读主节点
+     */
+    private boolean isMasterForced(RedisTemplate template) {
+        return redisReadRouting.isEnabled() && template == redisTemplate;
+    }
+
+    /**
+     * 记录方法耗时，未开启指标时直接执行
+     */
+    private <R> R timed(String operation, Supplier<R> call) {
+        if (!rediscMetrics.isEnabled()) {
+            return call.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            rediscMetrics.recordOperation(operation, System.nanoTime() - start);
+        }
     }
 
+    private void timed(String operation, Runnable call) {
+        if (!rediscMetrics.isEnabled()) {
+            call.run();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            call.run();
+        } finally {
+            rediscMetrics.recordOperation(operation, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 按 redisc.bulk.batch-size 拆分
+     */
+    private <E> List<List<E>> partition(Collection<E> collection) {
+        return CollUtil.split(collection, rediscProperties.getBulk().getBatchSize());
+    }
+
+    /**
+     * 对每个键执行一条命令，每批一次管道往返，结果与键顺序一致
+     */
+    private <R> List<R> pipelineEach(Collection<String> keys, BiConsumer<RedisOperations, String> command) {
+        List<R> result = new ArrayList<>(keys.size());
+        for (List<String> chunk : partition(keys)) {
+            List<Object> values = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public Object execute(RedisOperations operations) {
+                    for (String key : chunk) {
+                        command.accept(operations, key);
+                    }
+                    return null;
+                }
+            });
+            for (Object value : values) {
+                result.add((R) value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 分块写入集合类数据，所有命令经同一管道发送。
+     * 整体替换时先写入同一槽位的临时键，设置有效时间后 RENAME 覆盖原键，读方不会看到写了一半的数据；
+     * 键无法构造同槽位临时键时退化为在同一管道中先删除再写入
+     *
+     * @return 管道中各命令的结果
+     */
+    private <E> List<Object> writeChunks(String key, Collection<E> data, boolean replace, long timeout, TimeUnit unit,
+                                         ChunkWriter<E> writer) {
+        if (data == null || data.isEmpty()) {
+            if (replace) {
+                redisTemplate.delete(key);
+            }
+            return Collections.emptyList();
+        }
+        String temp = replace ? tempKeyOf(key) : null;
+        String target = temp != null ? temp : key;
+        List<List<E>> chunks = CollUtil.split(data, Math.max(1, rediscProperties.getBulk().getChunkSize()));
+        try {
+            return redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public Object execute(RedisOperations operations) {
+                    if (replace && temp == null) {
+                        operations.delete(key);
+                    }
+                    for (List<E> chunk : chunks) {
+                        writer.write(operations, target, chunk);
+                    }
+                    if (timeout > 0) {
+                        operations.expire(target, timeout, unit);
+                    }
+                    if (temp != null) {
+                        operations.rename(temp, key);
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            if (temp != null) {
+                redisTemplate.delete(temp);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 与原键同一槽位的临时键，集群下 RENAME 要求两个键在同一槽位；无法构造时返回 null
+     */
+    private static String tempKeyOf(String key) {
+        try {
+            return RedisKeys.sameSlot(key, ":tmp:" + UUID.randomUUID().toString().replace("-", ""));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static <R> R lastOf(List<Object> results, Class<R> type) {
+        for (int i = results.size() - 1; i >= 0; i--) {
+            if (type.isInstance(results.get(i))) {
+                return type.cast(results.get(i));
+            }
+        }
+        return null;
+    }
+
+    private long unlink(List<String> batch, LongConsumer progress, long deletedBefore) {
+        Long count = redisTemplate.unlink(batch);
+        long deleted = count == null ? 0 : count;
+        redisNearCache.invalidateAll(batch);
+        batch.clear();
+        if (progress != null) {
+            progress.accept(deletedBefore + deleted);
+        }
+        return deleted;
+    }
 
     public static void genParameter(TaskSynData taskSynData, Object[] args) {
         if (args.length == 1) {
@@ -353,4 +1139,53 @@ public class RedisService {
             taskSynData.setData(map);
         }
     }
+
+    /**
+     * 按页加载的 list 迭代器
+     */
+    private class ListPageIterator<T> implements Iterator<T> {
+        private final String key;
+        private final int pageSize;
+        private List<T> page = Collections.emptyList();
+        private int position;
+        private long offset;
+        private boolean last;
+
+        private ListPageIterator(String key, int pageSize) {
+            this.key = key;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position < page.size()) {
+                return true;
+            }
+            if (last) {
+                return false;
+            }
+            List<T> next = readTemplate().opsForList().range(key, offset, offset + pageSize - 1);
+            page = next == null ? Collections.emptyList() : next;
+            position = 0;
+            offset += page.size();
+            last = page.size() < pageSize;
+            return !page.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(position++);
+        }
+    }
+
+    /**
+     * 向目标键写入一块数据
+     */
+    @FunctionalInterface
+    private interface ChunkWriter<E> {
+        void write(RedisOperations operations, String target, List<E> chunk);
+    }
 }